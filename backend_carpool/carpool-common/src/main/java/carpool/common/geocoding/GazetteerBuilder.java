@@ -0,0 +1,153 @@
+package carpool.common.geocoding;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Offline preprocessing: turns a place name extract into the index read by {@link GazetteerIndex}.
+ *
+ * Input is tab-separated, one place per line (e.g. cut down from a GeoNames or OSM dump):
+ * <pre>
+ *   name &lt;TAB&gt; latitude &lt;TAB&gt; longitude [&lt;TAB&gt; area [&lt;TAB&gt; population]]
+ * </pre>
+ * "area" is the city or district the place belongs to. Each place is indexed under its own
+ * name and under "name, area", so "Hinjewadi Phase 1, Pune, Maharashtra" resolves to the
+ * Hinjewadi in Pune. When two places normalize to the same key the more populous one wins.
+ * Places outside India (lat 8-37, lon 68-97) are skipped, like the Nominatim results.
+ * Run it from the ride-service jar:
+ * <pre>
+ *   java -cp app.jar -Dloader.main=carpool.common.geocoding.GazetteerBuilder \
+ *        org.springframework.boot.loader.PropertiesLauncher places.tsv india.gaz
+ * </pre>
+ */
+public class GazetteerBuilder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: GazetteerBuilder <places.tsv> <output.gaz>");
+            System.exit(1);
+        }
+
+        Map<String, long[]> places = read(Path.of(args[0]));
+        write(places, Path.of(args[1]));
+        System.out.println("Gazetteer index written to " + args[1] + ": " + places.size() + " keys");
+    }
+
+    /**
+     * Normalized key -> {latitude, longitude (micro-degrees), population}
+     */
+    static Map<String, long[]> read(Path file) throws IOException {
+        Map<String, long[]> places = new HashMap<>();
+        int skipped = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length < 3) {
+                    continue;
+                }
+
+                double lat;
+                double lon;
+                try {
+                    lat = Double.parseDouble(fields[1].trim());
+                    lon = Double.parseDouble(fields[2].trim());
+                } catch (NumberFormatException e) {
+                    continue; // header
+                }
+                if (lat < 8 || lat > 37 || lon < 68 || lon > 97) {
+                    skipped++;
+                    continue;
+                }
+
+                String name = fields[0].trim();
+                String area = fields.length > 3 ? fields[3].trim() : "";
+                long population = fields.length > 4 && !fields[4].isBlank() ? Long.parseLong(fields[4].trim()) : 0;
+                long[] place = {Math.round(lat * 1e6), Math.round(lon * 1e6), population};
+
+                add(places, GazetteerIndex.normalize(name), place);
+                if (!area.isEmpty()) {
+                    add(places, GazetteerIndex.normalize(name + ", " + area), place);
+                }
+            }
+        }
+
+        if (skipped > 0) {
+            System.out.println("Skipped " + skipped + " places outside India bounds");
+        }
+        return places;
+    }
+
+    private static void add(Map<String, long[]> places, String key, long[] place) {
+        if (key.isEmpty()) {
+            return;
+        }
+        places.merge(key, place, (existing, candidate) -> candidate[2] > existing[2] ? candidate : existing);
+    }
+
+    /**
+     * Write the keys front-coded, in unsigned UTF-8 byte order, in the layout documented on {@link GazetteerIndex}
+     */
+    static void write(Map<String, long[]> places, Path file) throws IOException {
+        List<byte[]> keys = new ArrayList<>(places.size());
+        Map<byte[], long[]> byKey = new IdentityHashMap<>();
+        for (Map.Entry<String, long[]> place : places.entrySet()) {
+            byte[] key = place.getKey().getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            byKey.put(key, place.getValue());
+        }
+        keys.sort(Arrays::compareUnsigned);
+
+        int blockCount = (keys.size() + GazetteerIndex.BLOCK_SIZE - 1) / GazetteerIndex.BLOCK_SIZE;
+        int[] blockOffsets = new int[blockCount];
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entries);
+        int dataStart = GazetteerIndex.HEADER_BYTES + blockCount * 4;
+
+        byte[] previous = new byte[0];
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            int shared = 0;
+            if (i % GazetteerIndex.BLOCK_SIZE == 0) {
+                blockOffsets[i / GazetteerIndex.BLOCK_SIZE] = dataStart + entries.size();
+            } else {
+                int max = Math.min(previous.length, key.length);
+                while (shared < max && previous[shared] == key[shared]) {
+                    shared++;
+                }
+            }
+
+            writeVarint(entryOut, shared);
+            writeVarint(entryOut, key.length - shared);
+            entryOut.write(key, shared, key.length - shared);
+            long[] place = byKey.get(key);
+            entryOut.writeInt((int) place[0]);
+            entryOut.writeInt((int) place[1]);
+            previous = key;
+        }
+        entryOut.flush();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(GazetteerIndex.MAGIC);
+            out.writeInt(GazetteerIndex.VERSION);
+            out.writeInt(keys.size());
+            out.writeInt(blockCount);
+            for (int offset : blockOffsets) {
+                out.writeInt(offset);
+            }
+            entries.writeTo(out);
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
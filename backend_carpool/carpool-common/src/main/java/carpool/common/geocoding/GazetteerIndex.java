@@ -0,0 +1,153 @@
+package carpool.common.geocoding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Read-only, memory-mapped place name index produced by {@link GazetteerBuilder}.
+ *
+ * Keys are normalized place names sorted by their UTF-8 bytes and front-coded in blocks:
+ * each entry stores only the suffix that differs from the previous key, and every block
+ * starts with a full key. A lookup binary-searches the block heads, then decodes one block.
+ * <pre>
+ *   magic, version, entryCount, blockCount          ints
+ *   blockOffset[blockCount]                          byte offset of each block
+ *   entries: varint sharedPrefix, varint suffixLength, suffix bytes, int latitude, int longitude
+ * </pre>
+ * Coordinates are micro-degrees.
+ */
+public class GazetteerIndex {
+
+    static final int MAGIC = 0x47415A31; // "GAZ1"
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 16;
+    static final int HEADER_BYTES = 16;
+
+    private final ByteBuffer data;
+    private final int entryCount;
+    private final int blockCount;
+
+    private GazetteerIndex(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a gazetteer index file");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported gazetteer index version " + data.getInt(4));
+        }
+        entryCount = data.getInt(8);
+        blockCount = data.getInt(12);
+    }
+
+    /**
+     * Map an index file into memory. The mapping outlives the channel.
+     */
+    public static GazetteerIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Gazetteer index files over 2 GB are not supported");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GazetteerIndex(buffer);
+        }
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * [longitude, latitude] of a normalized key, or null if it is not in the index
+     */
+    public double[] find(String normalizedKey) {
+        if (blockCount == 0) {
+            return null;
+        }
+        byte[] key = normalizedKey.getBytes(StandardCharsets.UTF_8);
+
+        // Last block whose first key is <= the key
+        int lo = 0;
+        int hi = blockCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (Arrays.compareUnsigned(blockHead(mid), key) <= 0) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        int position = blockOffset(lo);
+        int remaining = Math.min(BLOCK_SIZE, entryCount - lo * BLOCK_SIZE);
+        byte[] current = new byte[64];
+        int currentLength = 0;
+
+        for (int i = 0; i < remaining; i++) {
+            int[] cursor = {position};
+            int shared = readVarint(cursor);
+            int suffixLength = readVarint(cursor);
+            if (shared + suffixLength > current.length) {
+                current = Arrays.copyOf(current, Math.max(current.length * 2, shared + suffixLength));
+            }
+            data.get(cursor[0], current, shared, suffixLength);
+            currentLength = shared + suffixLength;
+            position = cursor[0] + suffixLength;
+
+            int comparison = Arrays.compareUnsigned(current, 0, currentLength, key, 0, key.length);
+            if (comparison == 0) {
+                int latitude = data.getInt(position);
+                int longitude = data.getInt(position + 4);
+                return new double[]{longitude / 1e6, latitude / 1e6};
+            }
+            if (comparison > 0) {
+                return null;
+            }
+            position += 8;
+        }
+        return null;
+    }
+
+    private int blockOffset(int block) {
+        return data.getInt(HEADER_BYTES + block * 4);
+    }
+
+    private byte[] blockHead(int block) {
+        int[] cursor = {blockOffset(block)};
+        readVarint(cursor); // shared prefix, always 0 at a block head
+        int length = readVarint(cursor);
+        byte[] head = new byte[length];
+        data.get(cursor[0], head, 0, length);
+        return head;
+    }
+
+    private int readVarint(int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get(cursor[0]++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Location key used by the index and by LocationService.normalizeLocation: case, spaces, commas,
+     * "phase N" and the state/country suffixes do not matter
+     */
+    public static String normalize(String location) {
+        return location.toLowerCase(Locale.ROOT)
+            .replaceAll("[,\\s]+", "")
+            .replaceAll("phase\\d+", "")
+            .replaceAll("maharashtra", "")
+            .replaceAll("india", "");
+    }
+}
@@ -0,0 +1,78 @@
+package carpool.common.geocoding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Geocodes location names from a local gazetteer index before anyone calls Nominatim.
+ *
+ * Disabled unless gazetteer.index-file points at an index built with {@link GazetteerBuilder}.
+ * A name is tried as typed, then as shorter runs of its comma-separated parts
+ * ("Baner Road, Baner, Pune" -> "Baner Road, Baner" -> "Baner, Pune"); null means "ask Nominatim".
+ */
+@Component
+public class LocalGeocoder {
+
+    private GazetteerIndex index;
+
+    public LocalGeocoder(@Value("${gazetteer.index-file:}") String indexFile) {
+        if (indexFile == null || indexFile.isBlank()) {
+            System.out.println("Local gazetteer disabled (gazetteer.index-file not set), using Nominatim");
+            return;
+        }
+
+        try {
+            index = GazetteerIndex.open(Path.of(indexFile));
+            System.out.println("Local gazetteer loaded " + index.getEntryCount() + " place keys from " + indexFile);
+        } catch (Exception e) {
+            index = null;
+            System.err.println(" Local gazetteer unavailable, using Nominatim: " + e.getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return index != null;
+    }
+
+    /**
+     * [longitude, latitude] of a location, or null if the gazetteer does not know it
+     */
+    public double[] geocode(String location) {
+        if (index == null || location == null) {
+            return null;
+        }
+
+        // Longest runs of comma-separated parts first, leftmost first. A run without the first
+        // part needs two meaningful parts: a lone "Pune" (or "Pune, Maharashtra") is too coarse
+        // to stand in for an unknown street and is left to Nominatim.
+        String[] parts = location.split(",");
+        for (int length = parts.length; length >= 1; length--) {
+            for (int start = 0; start + length <= parts.length; start++) {
+                if (start > 0 && meaningfulParts(parts, start, start + length) < 2) {
+                    continue;
+                }
+                String key = GazetteerIndex.normalize(String.join(",", Arrays.copyOfRange(parts, start, start + length)));
+                if (!key.isEmpty()) {
+                    double[] coordinates = index.find(key);
+                    if (coordinates != null) {
+                        return coordinates;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private int meaningfulParts(String[] parts, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (!GazetteerIndex.normalize(parts[i]).isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,191 @@
+package carpool.common.routing;
+
+import java.util.Arrays;
+
+/**
+ * Point-to-point queries on a contraction hierarchy: a forward search from the source
+ * and a backward search from the target, both only climbing to higher ranked nodes,
+ * meet at the top of the fastest route. Each search settles a few hundred nodes even
+ * on country-sized graphs.
+ *
+ * Routes are optimised for duration; the distance returned is the length of that route.
+ * Search state is per thread and reset by touched node, so a query allocates nothing
+ * proportional to the graph.
+ */
+class ContractionHierarchyRouter {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final RoadGraph graph;
+    private final ThreadLocal<SearchSpace> spaces;
+
+    ContractionHierarchyRouter(RoadGraph graph) {
+        this.graph = graph;
+        this.spaces = ThreadLocal.withInitial(() -> new SearchSpace(graph.getNodeCount()));
+    }
+
+    /**
+     * Fastest route between two nodes as {distance in metres, duration in tenths of a second},
+     * or null if the target cannot be reached
+     */
+    long[] route(int source, int target) {
+        if (source == target) {
+            return new long[]{0, 0};
+        }
+
+        SearchSpace space = spaces.get();
+        space.reset();
+        space.reach(true, source, 0, 0);
+        space.reach(false, target, 0, 0);
+
+        long best = UNREACHED;
+        long bestDistance = 0;
+
+        while (!space.forwardQueue.isEmpty() || !space.backwardQueue.isEmpty()) {
+            long forwardMin = space.forwardQueue.isEmpty() ? UNREACHED : space.forwardQueue.peekKey();
+            long backwardMin = space.backwardQueue.isEmpty() ? UNREACHED : space.backwardQueue.peekKey();
+            if (Math.min(forwardMin, backwardMin) >= best) {
+                break;
+            }
+
+            boolean up = forwardMin <= backwardMin;
+            long entry = (up ? space.forwardQueue : space.backwardQueue).poll();
+            int node = (int) entry;
+            int duration = (int) (entry >>> 32);
+            int[] durations = up ? space.forwardDuration : space.backwardDuration;
+            int[] distances = up ? space.forwardDistance : space.backwardDistance;
+            if (duration > durations[node]) {
+                continue; // stale queue entry
+            }
+
+            int[] otherDurations = up ? space.backwardDuration : space.forwardDuration;
+            if (otherDurations[node] != UNREACHED) {
+                long total = (long) duration + otherDurations[node];
+                if (total < best) {
+                    best = total;
+                    int[] otherDistances = up ? space.backwardDistance : space.forwardDistance;
+                    bestDistance = (long) distances[node] + otherDistances[node];
+                }
+            }
+
+            int end = graph.firstEdge(up, node + 1);
+            for (int edge = graph.firstEdge(up, node); edge < end; edge++) {
+                int next = graph.target(up, edge);
+                int nextDuration = duration + graph.duration(up, edge);
+                if (nextDuration < durations[next]) {
+                    space.reach(up, next, nextDuration, distances[node] + graph.distance(up, edge));
+                }
+            }
+        }
+
+        return best == UNREACHED ? null : new long[]{bestDistance, best};
+    }
+
+    private static class SearchSpace {
+        final int[] forwardDuration;
+        final int[] forwardDistance;
+        final int[] backwardDuration;
+        final int[] backwardDistance;
+        final LongHeap forwardQueue = new LongHeap();
+        final LongHeap backwardQueue = new LongHeap();
+        int[] touched = new int[64];
+        int touchedCount = 0;
+
+        SearchSpace(int nodeCount) {
+            forwardDuration = new int[nodeCount];
+            forwardDistance = new int[nodeCount];
+            backwardDuration = new int[nodeCount];
+            backwardDistance = new int[nodeCount];
+            Arrays.fill(forwardDuration, UNREACHED);
+            Arrays.fill(backwardDuration, UNREACHED);
+        }
+
+        void reach(boolean forward, int node, int duration, int distance) {
+            if (forwardDuration[node] == UNREACHED && backwardDuration[node] == UNREACHED) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = node;
+            }
+            if (forward) {
+                forwardDuration[node] = duration;
+                forwardDistance[node] = distance;
+                forwardQueue.add(((long) duration << 32) | node);
+            } else {
+                backwardDuration[node] = duration;
+                backwardDistance[node] = distance;
+                backwardQueue.add(((long) duration << 32) | node);
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                forwardDuration[touched[i]] = UNREACHED;
+                backwardDuration[touched[i]] = UNREACHED;
+            }
+            touchedCount = 0;
+            forwardQueue.clear();
+            backwardQueue.clear();
+        }
+    }
+
+    /**
+     * Binary min-heap of (duration << 32 | node) entries
+     */
+    private static class LongHeap {
+        private long[] heap = new long[64];
+        private int size = 0;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        long peekKey() {
+            return heap[0] >>> 32;
+        }
+
+        void add(long value) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long poll() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            if (size > 0) {
+                heap[i] = last;
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package carpool.common.routing;
+
+import java.util.Arrays;
+
+/**
+ * Snaps coordinates to the nearest graph node through a fixed 0.01 degree grid.
+ *
+ * Nodes are sorted by cell once at load time, so a lookup is a binary search per
+ * nearby cell and a distance check of the nodes in it.
+ */
+class NodeLocator {
+
+    private static final double CELL_DEGREES = 0.01;
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final int ROW_OFFSET = 9_000;
+    private static final int COL_OFFSET = 18_000;
+    private static final int COLS = 36_001;
+
+    private final RoadGraph graph;
+    private final int[] cellKeys;
+    private final int[] cellStart;
+    private final int[] nodes;
+
+    NodeLocator(RoadGraph graph) {
+        this.graph = graph;
+        int n = graph.getNodeCount();
+
+        // cell key (fits in 30 bits) in the high half, node id in the low half
+        long[] keyed = new long[n];
+        for (int node = 0; node < n; node++) {
+            long key = cellKey(row(graph.latitude(node)), col(graph.longitude(node)));
+            keyed[node] = (key << 32) | node;
+        }
+        Arrays.sort(keyed);
+
+        nodes = new int[n];
+        int[] keys = new int[n];
+        int[] starts = new int[n + 1];
+        int cells = 0;
+        for (int i = 0; i < n; i++) {
+            int key = (int) (keyed[i] >>> 32);
+            nodes[i] = (int) keyed[i];
+            if (cells == 0 || keys[cells - 1] != key) {
+                keys[cells] = key;
+                starts[cells] = i;
+                cells++;
+            }
+        }
+        starts[cells] = n;
+
+        cellKeys = Arrays.copyOf(keys, cells);
+        cellStart = Arrays.copyOf(starts, cells + 1);
+    }
+
+    /**
+     * Nearest node within maxKm, and its distance in km; null if there is none
+     */
+    Snap nearest(double lat, double lon, double maxKm) {
+        int centerRow = row(lat);
+        int centerCol = col(lon);
+        int rowSpan = (int) Math.ceil(maxKm / (CELL_DEGREES * KM_PER_DEGREE));
+        double lonCellKm = CELL_DEGREES * KM_PER_DEGREE * Math.cos(Math.toRadians(Math.min(89.0, Math.abs(lat))));
+        int colSpan = (int) Math.ceil(maxKm / lonCellKm);
+
+        int best = -1;
+        double bestKm = maxKm;
+        for (int r = centerRow - rowSpan; r <= centerRow + rowSpan; r++) {
+            for (int c = centerCol - colSpan; c <= centerCol + colSpan; c++) {
+                int cell = Arrays.binarySearch(cellKeys, cellKey(r, c));
+                if (cell < 0) {
+                    continue;
+                }
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int node = nodes[i];
+                    double km = haversineKm(lat, lon, graph.latitude(node), graph.longitude(node));
+                    if (km <= bestKm) {
+                        bestKm = km;
+                        best = node;
+                    }
+                }
+            }
+        }
+        return best >= 0 ? new Snap(best, bestKm) : null;
+    }
+
+    private static int row(double lat) {
+        return (int) Math.floor(lat / CELL_DEGREES);
+    }
+
+    private static int col(double lon) {
+        return (int) Math.floor(lon / CELL_DEGREES);
+    }
+
+    private static int cellKey(int row, int col) {
+        return (row + ROW_OFFSET) * COLS + (col + COL_OFFSET);
+    }
+
+    static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    static class Snap {
+        final int node;
+        final double km;
+
+        Snap(int node, double km) {
+            this.node = node;
+            this.km = km;
+        }
+    }
+}
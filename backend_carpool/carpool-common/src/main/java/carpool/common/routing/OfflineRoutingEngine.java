@@ -0,0 +1,76 @@
+package carpool.common.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Embedded road router answering distance and duration from a local contraction hierarchy.
+ *
+ * Disabled unless routing.graph-file points at a graph built with {@link RoadGraphBuilder};
+ * callers fall back to OpenRouteService whenever {@link #route} returns null (no graph loaded,
+ * a point too far from the road network, or no route between the points).
+ */
+@Component
+public class OfflineRoutingEngine {
+
+    // Speed assumed for the stretch between a point and the road node it snaps to
+    private static final double ACCESS_SPEED_KMH = 20.0;
+
+    private final double maxSnapKm;
+    private RoadGraph graph;
+    private NodeLocator locator;
+    private ContractionHierarchyRouter router;
+
+    public OfflineRoutingEngine(@Value("${routing.graph-file:}") String graphFile,
+                                @Value("${routing.max-snap-km:1.0}") double maxSnapKm) {
+        this.maxSnapKm = maxSnapKm;
+
+        if (graphFile == null || graphFile.isBlank()) {
+            System.out.println("Offline routing disabled (routing.graph-file not set), using OpenRouteService");
+            return;
+        }
+
+        try {
+            long started = System.currentTimeMillis();
+            graph = RoadGraph.open(Path.of(graphFile));
+            locator = new NodeLocator(graph);
+            router = new ContractionHierarchyRouter(graph);
+            System.out.println("Offline routing loaded " + graph.getNodeCount() + " nodes from " + graphFile +
+                             " in " + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            graph = null;
+            System.err.println(" Offline routing unavailable, using OpenRouteService: " + e.getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return graph != null;
+    }
+
+    /**
+     * Fastest road route between two coordinates, or null if the offline graph cannot answer it
+     */
+    public RouteEstimate route(double fromLat, double fromLng, double toLat, double toLng) {
+        if (graph == null) {
+            return null;
+        }
+
+        NodeLocator.Snap from = locator.nearest(fromLat, fromLng, maxSnapKm);
+        NodeLocator.Snap to = locator.nearest(toLat, toLng, maxSnapKm);
+        if (from == null || to == null) {
+            return null;
+        }
+
+        long[] route = router.route(from.node, to.node);
+        if (route == null) {
+            return null;
+        }
+
+        double accessKm = from.km + to.km;
+        double distanceKm = route[0] / 1000.0 + accessKm;
+        double durationSeconds = route[1] / 10.0 + accessKm / ACCESS_SPEED_KMH * 3600.0;
+        return new RouteEstimate(distanceKm, durationSeconds);
+    }
+}
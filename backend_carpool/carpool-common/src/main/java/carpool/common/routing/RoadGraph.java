@@ -0,0 +1,117 @@
+package carpool.common.routing;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped contraction hierarchy produced by {@link RoadGraphBuilder}.
+ *
+ * File layout (big-endian 32-bit ints):
+ * <pre>
+ *   magic, version, nodeCount, upEdgeCount, downEdgeCount
+ *   latitude[nodeCount], longitude[nodeCount]            micro-degrees
+ *   upFirst[nodeCount + 1]                               first upward edge of each node
+ *   upTarget[upEdgeCount], upDuration[..], upDistance[..]
+ *   downFirst[nodeCount + 1]
+ *   downTarget[downEdgeCount], downDuration[..], downDistance[..]
+ * </pre>
+ * Upward edges lead from a node to a higher ranked one and drive the forward search.
+ * Downward edges are stored reversed at their lower ranked end and drive the backward search.
+ * Durations are in tenths of a second, distances in metres.
+ *
+ * Nothing is copied onto the heap: the OS pages the graph in on demand.
+ */
+public class RoadGraph {
+
+    static final int MAGIC = 0x43484731; // "CHG1"
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 5;
+
+    private final IntBuffer data;
+    private final int nodeCount;
+    private final int latitudeOffset;
+    private final int longitudeOffset;
+    private final int[] firstOffset = new int[2];
+    private final int[] targetOffset = new int[2];
+    private final int[] durationOffset = new int[2];
+    private final int[] distanceOffset = new int[2];
+
+    private RoadGraph(IntBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_INTS || data.get(0) != MAGIC) {
+            throw new IOException("Not a road graph file");
+        }
+        if (data.get(1) != VERSION) {
+            throw new IOException("Unsupported road graph version " + data.get(1));
+        }
+
+        nodeCount = data.get(2);
+        int upEdges = data.get(3);
+        int downEdges = data.get(4);
+
+        latitudeOffset = HEADER_INTS;
+        longitudeOffset = latitudeOffset + nodeCount;
+
+        int offset = longitudeOffset + nodeCount;
+        int[] edgeCounts = {upEdges, downEdges};
+        for (int direction = 0; direction < 2; direction++) {
+            firstOffset[direction] = offset;
+            targetOffset[direction] = offset + nodeCount + 1;
+            durationOffset[direction] = targetOffset[direction] + edgeCounts[direction];
+            distanceOffset[direction] = durationOffset[direction] + edgeCounts[direction];
+            offset = distanceOffset[direction] + edgeCounts[direction];
+        }
+
+        if (data.limit() != offset) {
+            throw new IOException("Road graph file is truncated or corrupt");
+        }
+    }
+
+    /**
+     * Map a graph file into memory. The mapping outlives the channel.
+     */
+    public static RoadGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Road graph files over 2 GB are not supported");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new RoadGraph(buffer.asIntBuffer());
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public double latitude(int node) {
+        return data.get(latitudeOffset + node) / 1e6;
+    }
+
+    public double longitude(int node) {
+        return data.get(longitudeOffset + node) / 1e6;
+    }
+
+    /**
+     * First edge of a node; its edges run up to firstEdge(up, node + 1)
+     */
+    int firstEdge(boolean up, int node) {
+        return data.get(firstOffset[up ? 0 : 1] + node);
+    }
+
+    int target(boolean up, int edge) {
+        return data.get(targetOffset[up ? 0 : 1] + edge);
+    }
+
+    int duration(boolean up, int edge) {
+        return data.get(durationOffset[up ? 0 : 1] + edge);
+    }
+
+    int distance(boolean up, int edge) {
+        return data.get(distanceOffset[up ? 0 : 1] + edge);
+    }
+}
@@ -0,0 +1,368 @@
+package carpool.common.routing;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Offline preprocessing: contracts a road network into the graph file read by {@link RoadGraph}.
+ *
+ * Input is two CSV files, e.g. exported from an OpenStreetMap extract of the service area:
+ * <pre>
+ *   nodes.csv   id,latitude,longitude
+ *   edges.csv   fromId,toId,distanceMetres,durationSeconds[,oneway]   (oneway: true/1, default two-way)
+ * </pre>
+ * A header line is allowed in both. Run it from the ride-service jar:
+ * <pre>
+ *   java -cp app.jar -Dloader.main=carpool.common.routing.RoadGraphBuilder \
+ *        org.springframework.boot.loader.PropertiesLauncher nodes.csv edges.csv pune.chg
+ * </pre>
+ * Nodes are contracted in edge-difference order with bounded witness searches; a search that
+ * gives up only costs an extra shortcut, never a wrong answer.
+ */
+public class RoadGraphBuilder {
+
+    private static final int WITNESS_SETTLED_LIMIT = 500;
+
+    private final int nodeCount;
+    private final int[] latitudes;
+    private final int[] longitudes;
+    private final List<List<Arc>> outgoing;
+    private final List<List<Arc>> incoming;
+    private final boolean[] contracted;
+    private final int[] rank;
+    private final int[] contractedNeighbours;
+
+    // Reusable witness search state
+    private final int[] witnessDuration;
+    private final List<Integer> witnessTouched = new ArrayList<>();
+
+    private RoadGraphBuilder(int nodeCount, int[] latitudes, int[] longitudes) {
+        this.nodeCount = nodeCount;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.outgoing = new ArrayList<>(nodeCount);
+        this.incoming = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            outgoing.add(new ArrayList<>(4));
+            incoming.add(new ArrayList<>(4));
+        }
+        this.contracted = new boolean[nodeCount];
+        this.rank = new int[nodeCount];
+        this.contractedNeighbours = new int[nodeCount];
+        this.witnessDuration = new int[nodeCount];
+        Arrays.fill(witnessDuration, Integer.MAX_VALUE);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: RoadGraphBuilder <nodes.csv> <edges.csv> <output.chg>");
+            System.exit(1);
+        }
+
+        long started = System.currentTimeMillis();
+        RoadGraphBuilder builder = read(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Read " + builder.nodeCount + " nodes");
+
+        builder.contract();
+        builder.write(Path.of(args[2]));
+        System.out.println("Road graph written to " + args[2] + " in " +
+                         (System.currentTimeMillis() - started) / 1000 + " s");
+    }
+
+    /**
+     * Build a graph in memory from node and edge CSV files
+     */
+    static RoadGraphBuilder read(Path nodesFile, Path edgesFile) throws IOException {
+        Map<Long, Integer> index = new HashMap<>();
+        List<int[]> coordinates = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(nodesFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length < 3 || !isNumber(fields[0])) {
+                    continue;
+                }
+                index.put(Long.parseLong(fields[0].trim()), coordinates.size());
+                coordinates.add(new int[]{
+                    (int) Math.round(Double.parseDouble(fields[1].trim()) * 1e6),
+                    (int) Math.round(Double.parseDouble(fields[2].trim()) * 1e6)
+                });
+            }
+        }
+
+        int n = coordinates.size();
+        int[] latitudes = new int[n];
+        int[] longitudes = new int[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = coordinates.get(i)[0];
+            longitudes[i] = coordinates.get(i)[1];
+        }
+
+        RoadGraphBuilder builder = new RoadGraphBuilder(n, latitudes, longitudes);
+        try (BufferedReader reader = Files.newBufferedReader(edgesFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length < 4 || !isNumber(fields[0])) {
+                    continue;
+                }
+                Integer from = index.get(Long.parseLong(fields[0].trim()));
+                Integer to = index.get(Long.parseLong(fields[1].trim()));
+                if (from == null || to == null) {
+                    continue;
+                }
+                int distance = (int) Math.round(Double.parseDouble(fields[2].trim()));
+                int duration = (int) Math.round(Double.parseDouble(fields[3].trim()) * 10);
+                boolean oneway = fields.length > 4 &&
+                    ("true".equalsIgnoreCase(fields[4].trim()) || "1".equals(fields[4].trim()));
+
+                builder.addArc(from, to, duration, distance);
+                if (!oneway) {
+                    builder.addArc(to, from, duration, distance);
+                }
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Contract every node, cheapest first, adding the shortcuts that keep shortest paths intact
+     */
+    void contract() {
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[0]));
+        for (int node = 0; node < nodeCount; node++) {
+            queue.add(new long[]{priority(node), node});
+        }
+
+        int order = 0;
+        while (!queue.isEmpty()) {
+            int node = (int) queue.poll()[1];
+
+            // Lazy update: the priority may have grown since it was queued
+            long current = priority(node);
+            if (!queue.isEmpty() && current > queue.peek()[0]) {
+                queue.add(new long[]{current, node});
+                continue;
+            }
+
+            shortcuts(node, true);
+            contracted[node] = true;
+            rank[node] = order++;
+            for (Arc arc : outgoing.get(node)) {
+                contractedNeighbours[arc.to]++;
+            }
+            for (Arc arc : incoming.get(node)) {
+                contractedNeighbours[arc.from]++;
+            }
+
+            if (order % 100_000 == 0) {
+                System.out.println("Contracted " + order + "/" + nodeCount + " nodes");
+            }
+        }
+    }
+
+    /**
+     * Write the contracted graph in the layout documented on {@link RoadGraph}
+     */
+    void write(Path file) throws IOException {
+        List<List<int[]>> up = new ArrayList<>(nodeCount);
+        List<List<int[]>> down = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            up.add(new ArrayList<>());
+            down.add(new ArrayList<>());
+        }
+
+        int upEdges = 0;
+        int downEdges = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            for (Arc arc : outgoing.get(node)) {
+                if (rank[arc.from] < rank[arc.to]) {
+                    up.get(arc.from).add(new int[]{arc.to, arc.duration, arc.distance});
+                    upEdges++;
+                } else {
+                    // Stored reversed, so the backward search also only climbs
+                    down.get(arc.to).add(new int[]{arc.from, arc.duration, arc.distance});
+                    downEdges++;
+                }
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(RoadGraph.MAGIC);
+            out.writeInt(RoadGraph.VERSION);
+            out.writeInt(nodeCount);
+            out.writeInt(upEdges);
+            out.writeInt(downEdges);
+            for (int latitude : latitudes) {
+                out.writeInt(latitude);
+            }
+            for (int longitude : longitudes) {
+                out.writeInt(longitude);
+            }
+            writeEdges(out, up);
+            writeEdges(out, down);
+        }
+    }
+
+    private void writeEdges(DataOutputStream out, List<List<int[]>> edges) throws IOException {
+        int first = 0;
+        for (List<int[]> nodeEdges : edges) {
+            out.writeInt(first);
+            first += nodeEdges.size();
+        }
+        out.writeInt(first);
+
+        for (int field = 0; field < 3; field++) {
+            for (List<int[]> nodeEdges : edges) {
+                for (int[] edge : nodeEdges) {
+                    out.writeInt(edge[field]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Edge difference plus contracted neighbours: prefer nodes that remove more edges than they add,
+     * spread evenly over the graph
+     */
+    private long priority(int node) {
+        int removed = 0;
+        for (Arc arc : incoming.get(node)) {
+            if (!contracted[arc.from]) {
+                removed++;
+            }
+        }
+        for (Arc arc : outgoing.get(node)) {
+            if (!contracted[arc.to]) {
+                removed++;
+            }
+        }
+        return shortcuts(node, false) - removed + contractedNeighbours[node];
+    }
+
+    /**
+     * Shortcuts needed to bypass a node, added to the graph when apply is set. Returns their count.
+     */
+    private int shortcuts(int node, boolean apply) {
+        int count = 0;
+        for (Arc in : new ArrayList<>(incoming.get(node))) {
+            int from = in.from;
+            if (contracted[from]) {
+                continue;
+            }
+
+            int maxOut = -1;
+            for (Arc out : outgoing.get(node)) {
+                if (!contracted[out.to] && out.to != from) {
+                    maxOut = Math.max(maxOut, out.duration);
+                }
+            }
+            if (maxOut < 0) {
+                continue;
+            }
+
+            witnessSearch(from, node, (long) in.duration + maxOut);
+
+            for (Arc out : new ArrayList<>(outgoing.get(node))) {
+                int to = out.to;
+                if (contracted[to] || to == from) {
+                    continue;
+                }
+                int via = in.duration + out.duration;
+                if (witnessDuration[to] > via) {
+                    count++;
+                    if (apply) {
+                        addArc(from, to, via, in.distance + out.distance);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Bounded Dijkstra from a node over the uncontracted graph, avoiding the node being contracted
+     */
+    private void witnessSearch(int source, int avoid, long limit) {
+        for (int node : witnessTouched) {
+            witnessDuration[node] = Integer.MAX_VALUE;
+        }
+        witnessTouched.clear();
+
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[0]));
+        witnessDuration[source] = 0;
+        witnessTouched.add(source);
+        queue.add(new long[]{0, source});
+
+        int settled = 0;
+        while (!queue.isEmpty() && settled < WITNESS_SETTLED_LIMIT) {
+            long[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > witnessDuration[node]) {
+                continue;
+            }
+            if (entry[0] > limit) {
+                break;
+            }
+            settled++;
+
+            for (Arc arc : outgoing.get(node)) {
+                if (contracted[arc.to] || arc.to == avoid) {
+                    continue;
+                }
+                long next = entry[0] + arc.duration;
+                if (next < witnessDuration[arc.to]) {
+                    if (witnessDuration[arc.to] == Integer.MAX_VALUE) {
+                        witnessTouched.add(arc.to);
+                    }
+                    witnessDuration[arc.to] = (int) next;
+                    queue.add(new long[]{next, arc.to});
+                }
+            }
+        }
+    }
+
+    /**
+     * Add an arc, or shorten an existing one between the same nodes
+     */
+    private void addArc(int from, int to, int duration, int distance) {
+        if (from == to) {
+            return;
+        }
+        for (Arc arc : outgoing.get(from)) {
+            if (arc.to == to) {
+                if (duration < arc.duration) {
+                    arc.duration = duration;
+                    arc.distance = distance;
+                }
+                return;
+            }
+        }
+        Arc arc = new Arc(from, to, duration, distance);
+        outgoing.get(from).add(arc);
+        incoming.get(to).add(arc);
+    }
+
+    private static boolean isNumber(String field) {
+        String trimmed = field.trim();
+        return !trimmed.isEmpty() && (Character.isDigit(trimmed.charAt(0)) || trimmed.charAt(0) == '-');
+    }
+
+    private static class Arc {
+        final int from;
+        final int to;
+        int duration;
+        int distance;
+
+        Arc(int from, int to, int duration, int distance) {
+            this.from = from;
+            this.to = to;
+            this.duration = duration;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package carpool.common.routing;
+
+/**
+ * Road distance and driving time of a route, from the offline engine, the route cache or OpenRouteService
+ */
+public class RouteEstimate {
+
+    private final double distanceKm;
+    private final double durationSeconds;
+
+    public RouteEstimate(double distanceKm, double durationSeconds) {
+        this.distanceKm = distanceKm;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+}
@@ -0,0 +1,56 @@
+package carpool.common.upstream;
+
+/**
+ * Reservation-based token bucket: callers are handed consecutive slots, so they queue
+ * in arrival order instead of racing for the next free token.
+ */
+class TokenBucket {
+    
+    private final long intervalNanos;
+    private final double burst;
+    private double storedPermits;
+    private long nextFreeNanos;
+    
+    TokenBucket(int requestsPerMinute, int burst) {
+        this.intervalNanos = 60_000_000_000L / Math.max(1, requestsPerMinute);
+        this.burst = Math.max(1, burst);
+        this.storedPermits = this.burst;
+        this.nextFreeNanos = System.nanoTime();
+    }
+    
+    /**
+     * Reserve the next slot and return how long to wait for it, or -1 (nothing reserved)
+     * if that would take longer than maxWaitNanos
+     */
+    synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        if (now > nextFreeNanos) {
+            storedPermits = Math.min(burst, storedPermits + (double) (now - nextFreeNanos) / intervalNanos);
+            nextFreeNanos = now;
+        }
+        
+        long wait = nextFreeNanos - now;
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        
+        if (storedPermits >= 1) {
+            storedPermits -= 1;
+        } else {
+            nextFreeNanos += intervalNanos;
+        }
+        return wait;
+    }
+    
+    /**
+     * The upstream pushed back (HTTP 429): hand out nothing until the pause is over
+     */
+    synchronized void pause(long pauseNanos) {
+        storedPermits = 0;
+        nextFreeNanos = Math.max(nextFreeNanos, System.nanoTime() + pauseNanos);
+    }
+    
+    long getIntervalNanos() {
+        return intervalNanos;
+    }
+}
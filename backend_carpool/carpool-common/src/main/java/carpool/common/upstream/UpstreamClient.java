@@ -0,0 +1,171 @@
+package carpool.common.upstream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gate for every call to a rate-limited upstream (OpenRouteService, Nominatim).
+ *
+ * Identical requests already in flight are coalesced: later callers wait for the first
+ * one's answer instead of spending another request. Each upstream has a token bucket
+ * sized from upstream.NAME.requests-per-minute / burst, and callers queue for a slot
+ * rather than firing and collecting 429s. A caller that would queue longer than
+ * upstream.max-wait-ms is refused right away, so matching can fall back without stalling.
+ */
+@Component
+public class UpstreamClient {
+    
+    private final Environment environment;
+    private final long maxWaitNanos;
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    
+    public UpstreamClient(Environment environment,
+                          @Value("${upstream.max-wait-ms:10000}") long maxWaitMs) {
+        this.environment = environment;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+    }
+    
+    /**
+     * Run a request against an upstream, sharing the result with identical concurrent requests.
+     * The key must identify the request completely (URL and body).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T call(String upstreamName, String key, Callable<T> request) throws Exception {
+        Upstream upstream = upstream(upstreamName);
+        String flightKey = upstreamName + '\u0000' + key;
+        
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(flightKey, mine);
+        if (leader != null) {
+            upstream.coalesced.incrementAndGet();
+            try {
+                return (T) leader.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        
+        try {
+            T result = execute(upstream, request);
+            mine.complete(result);
+            return result;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+    
+    private <T> T execute(Upstream upstream, Callable<T> request) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            acquire(upstream);
+            upstream.requests.incrementAndGet();
+            try {
+                return request.call();
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                // Our budget was off (the key is shared by ride-service and matching-service): stop everyone for a while
+                upstream.throttled.incrementAndGet();
+                upstream.bucket.pause(retryAfterNanos(e, upstream));
+                if (attempt > 0) {
+                    upstream.failed.incrementAndGet();
+                    throw e;
+                }
+            } catch (Exception e) {
+                upstream.failed.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Wait in line for a token, or fail fast if the line is too long
+     */
+    private void acquire(Upstream upstream) throws InterruptedException {
+        int depth = upstream.waiting.incrementAndGet();
+        upstream.maxWaiting.accumulateAndGet(depth, Math::max);
+        try {
+            long wait = upstream.bucket.reserve(maxWaitNanos);
+            if (wait < 0) {
+                upstream.rejected.incrementAndGet();
+                throw new RejectedExecutionException(upstream.name + " rate limit: queue wait exceeds " +
+                    TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            upstream.waitNanos.addAndGet(wait);
+            upstream.maxWaitNanos.accumulateAndGet(wait, Math::max);
+        } finally {
+            upstream.waiting.decrementAndGet();
+        }
+    }
+    
+    private long retryAfterNanos(HttpClientErrorException e, Upstream upstream) {
+        String retryAfter = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst("Retry-After") : null;
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form, use the default below
+            }
+        }
+        return upstream.bucket.getIntervalNanos() * 2;
+    }
+    
+    private Upstream upstream(String name) {
+        return upstreams.computeIfAbsent(name, n -> new Upstream(n,
+            environment.getProperty("upstream." + n + ".requests-per-minute", Integer.class, 40),
+            environment.getProperty("upstream." + n + ".burst", Integer.class, 1)));
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Upstream upstream : upstreams.values()) {
+            long requests = upstream.requests.get();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("requestsPerMinute", upstream.requestsPerMinute);
+            entry.put("requests", requests);
+            entry.put("coalesced", upstream.coalesced.get());
+            entry.put("queueDepth", upstream.waiting.get());
+            entry.put("maxQueueDepth", upstream.maxWaiting.get());
+            entry.put("avgWaitMs", requests > 0 ? TimeUnit.NANOSECONDS.toMillis(upstream.waitNanos.get() / requests) : 0);
+            entry.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(upstream.maxWaitNanos.get()));
+            entry.put("rejected", upstream.rejected.get());
+            entry.put("throttled", upstream.throttled.get());
+            entry.put("failed", upstream.failed.get());
+            stats.put(upstream.name, entry);
+        }
+        return stats;
+    }
+    
+    private static class Upstream {
+        final String name;
+        final int requestsPerMinute;
+        final TokenBucket bucket;
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong coalesced = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong throttled = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong waitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final AtomicInteger waiting = new AtomicInteger();
+        final AtomicInteger maxWaiting = new AtomicInteger();
+        
+        Upstream(String name, int requestsPerMinute, int burst) {
+            this.name = name;
+            this.requestsPerMinute = requestsPerMinute;
+            this.bucket = new TokenBucket(requestsPerMinute, burst);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package carpool.common.routing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractionHierarchyTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void matchesDijkstraOnEveryPairOfRandomGraphs() throws IOException {
+        for (long seed = 1; seed <= 5; seed++) {
+            assertSameAsDijkstra(randomGraph(new Random(seed), 60, 150), "seed " + seed);
+        }
+    }
+
+    @Test
+    void respectsOnewayStreetsAndUnreachableNodes() throws IOException {
+        // 0 -> 1 -> 2 one way, 2 <-> 3, 4 isolated
+        List<int[]> edges = List.of(
+            new int[]{0, 1, 30, 1},
+            new int[]{1, 2, 30, 1},
+            new int[]{2, 3, 10, 0}
+        );
+        RoadGraph graph = assertSameAsDijkstra(new TestGraph(5, edges), "oneway");
+        ContractionHierarchyRouter router = new ContractionHierarchyRouter(graph);
+
+        assertArrayEquals(new long[]{600, 600}, router.route(0, 2));
+        assertNull(router.route(2, 0));
+        assertNull(router.route(0, 4));
+        assertArrayEquals(new long[]{0, 0}, router.route(4, 4));
+    }
+
+    // --- HELPERS ---
+
+    /**
+     * Contract the graph, then route every ordered pair both ways and compare
+     */
+    private RoadGraph assertSameAsDijkstra(TestGraph input, String name) throws IOException {
+        Path nodes = dir.resolve(name + "-nodes.csv");
+        Path edges = dir.resolve(name + "-edges.csv");
+        Path chg = dir.resolve(name + ".chg");
+
+        StringBuilder nodeCsv = new StringBuilder("id,latitude,longitude\n");
+        for (int node = 0; node < input.nodeCount; node++) {
+            nodeCsv.append(node).append(',').append(18.5 + node * 0.001).append(',').append(73.8 + node * 0.001).append('\n');
+        }
+        StringBuilder edgeCsv = new StringBuilder("fromId,toId,distanceMetres,durationSeconds,oneway\n");
+        for (int[] edge : input.edges) {
+            // Distance in metres is ten times the seconds, so it must sum up exactly like the duration in tenths
+            edgeCsv.append(edge[0]).append(',').append(edge[1]).append(',')
+                   .append(edge[2] * 10).append(',').append(edge[2]).append(',').append(edge[3]).append('\n');
+        }
+        Files.writeString(nodes, nodeCsv);
+        Files.writeString(edges, edgeCsv);
+
+        RoadGraphBuilder builder = RoadGraphBuilder.read(nodes, edges);
+        builder.contract();
+        builder.write(chg);
+        RoadGraph graph = RoadGraph.open(chg);
+        ContractionHierarchyRouter router = new ContractionHierarchyRouter(graph);
+
+        for (int source = 0; source < input.nodeCount; source++) {
+            long[] expected = dijkstra(input, source);
+            for (int target = 0; target < input.nodeCount; target++) {
+                long[] route = router.route(source, target);
+                String pair = name + ": " + source + " -> " + target;
+                if (expected[target] == Long.MAX_VALUE) {
+                    assertNull(route, pair);
+                } else {
+                    assertNotNull(route, pair);
+                    assertEquals(expected[target], route[1], pair + " duration");
+                    assertEquals(expected[target], route[0], pair + " distance");
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Plain Dijkstra on the input edges, durations in tenths of a second
+     */
+    private static long[] dijkstra(TestGraph graph, int source) {
+        List<List<int[]>> adjacency = new ArrayList<>();
+        for (int node = 0; node < graph.nodeCount; node++) {
+            adjacency.add(new ArrayList<>());
+        }
+        for (int[] edge : graph.edges) {
+            adjacency.get(edge[0]).add(new int[]{edge[1], edge[2] * 10});
+            if (edge[3] == 0) {
+                adjacency.get(edge[1]).add(new int[]{edge[0], edge[2] * 10});
+            }
+        }
+
+        long[] best = new long[graph.nodeCount];
+        Arrays.fill(best, Long.MAX_VALUE);
+        best[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[1]));
+        queue.add(new long[]{source, 0});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int node = (int) entry[0];
+            if (entry[1] > best[node]) {
+                continue;
+            }
+            for (int[] edge : adjacency.get(node)) {
+                long next = entry[1] + edge[1];
+                if (next < best[edge[0]]) {
+                    best[edge[0]] = next;
+                    queue.add(new long[]{edge[0], next});
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sparse road-like graph: a random spanning path plus extra edges, about a fifth of them one way
+     */
+    private static TestGraph randomGraph(Random random, int nodeCount, int extraEdges) {
+        List<int[]> edges = new ArrayList<>();
+        for (int node = 1; node < nodeCount; node++) {
+            edges.add(new int[]{random.nextInt(node), node, 1 + random.nextInt(120), 0});
+        }
+        for (int i = 0; i < extraEdges; i++) {
+            int from = random.nextInt(nodeCount);
+            int to = random.nextInt(nodeCount);
+            if (from != to) {
+                edges.add(new int[]{from, to, 1 + random.nextInt(120), random.nextInt(5) == 0 ? 1 : 0});
+            }
+        }
+        return new TestGraph(nodeCount, edges);
+    }
+
+    /**
+     * Edges as {from, to, durationSeconds, oneway (1) or two-way (0)}
+     */
+    private record TestGraph(int nodeCount, List<int[]> edges) {
+    }
+}
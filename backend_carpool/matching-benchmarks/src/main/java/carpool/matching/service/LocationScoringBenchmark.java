@@ -0,0 +1,67 @@
+package carpool.matching.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-candidate helpers of LocationService: scoring and location name normalisation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationScoringBenchmark {
+
+    private LocationService locationService;
+    private String riderPickup;
+    private String riderDrop;
+    private String driverPickup;
+    private String driverDrop;
+    private double pickupKm;
+    private double dropKm;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        SyntheticRides data = new SyntheticRides(42L);
+        locationService = data.locationService(1.3);
+        ReflectionTestUtils.setField(locationService, "maxRadiusKm", 5.0);
+
+        riderPickup = data.stopName(0);
+        riderDrop = data.stopName(1);
+        driverPickup = data.stopName(2);
+        driverDrop = data.stopName(3);
+        pickupKm = 2.4;
+        dropKm = 3.1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public int calculateMatchingScoreFromDistances() {
+        return locationService.calculateMatchingScore(pickupKm, dropKm);
+    }
+
+    @Benchmark
+    public int calculateMatchingScoreFromNames() {
+        return locationService.calculateMatchingScore(riderPickup, riderDrop, driverPickup, driverDrop,
+            new DistanceContext(locationService));
+    }
+
+    @Benchmark
+    public String normalizeLocation() {
+        return locationService.normalizeLocation(driverPickup);
+    }
+}
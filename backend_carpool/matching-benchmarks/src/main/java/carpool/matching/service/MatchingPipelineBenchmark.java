@@ -0,0 +1,100 @@
+package carpool.matching.service;
+
+import carpool.matching.dto.MatchRequestDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end candidate scoring (findBestMatchByDistance) over the resident ride index.
+ *
+ * matrix:   rides carry coordinates, so the grid and straight-line stages prune them and the
+ *           survivors are scored from one (local) distance matrix.
+ * pairwise: rides have no coordinates, so every ride with seats goes through the per-pair
+ *           radius check and scoring against the stubbed LocationService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingPipelineBenchmark {
+
+    private static final double MAX_RADIUS_KM = 5.0;
+    private static final double DETOUR_FACTOR = 1.3;
+
+    @Param({"100", "1000", "10000"})
+    private int rideCount;
+
+    @Param({"matrix", "pairwise"})
+    private String path;
+
+    private MatchingService matchingService;
+    private ThreadPoolTaskExecutor executor;
+    private MatchRequestDTO rider;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // The pipeline logs every candidate; measure the matching, not the console
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        SyntheticRides data = new SyntheticRides(42L);
+        boolean located = "matrix".equals(path);
+        List<Map<String, Object>> rides = data.rides(rideCount, located);
+        rider = data.rider();
+
+        LocationService locationService = data.locationService(DETOUR_FACTOR);
+        ReflectionTestUtils.setField(locationService, "maxRadiusKm", MAX_RADIUS_KM);
+
+        RouteCorridorIndex corridorIndex = new RouteCorridorIndex();
+        ReflectionTestUtils.setField(corridorIndex, "cellSizeKm", MAX_RADIUS_KM);
+
+        ActiveRideIndex rideIndex = new ActiveRideIndex(null, corridorIndex);
+        ReflectionTestUtils.setField(rideIndex, "cellSizeKm", MAX_RADIUS_KM);
+        rideIndex.replaceAll(rides, 0L);
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.initialize();
+
+        matchingService = new MatchingService();
+        ReflectionTestUtils.setField(matchingService, "locationService", locationService);
+        ReflectionTestUtils.setField(matchingService, "rideIndex", rideIndex);
+        ReflectionTestUtils.setField(matchingService, "corridorIndex", corridorIndex);
+        ReflectionTestUtils.setField(matchingService, "matchingMetrics", new MatchingMetrics());
+        ReflectionTestUtils.setField(matchingService, "distanceMatrixService", new StraightLineDistanceMatrixService(DETOUR_FACTOR));
+        ReflectionTestUtils.setField(matchingService, "matchingExecutor", executor);
+        ReflectionTestUtils.setField(matchingService, "maxRadiusKm", MAX_RADIUS_KM);
+        ReflectionTestUtils.setField(matchingService, "maxStraightLineKm", MAX_RADIUS_KM);
+        ReflectionTestUtils.setField(matchingService, "detourFactor", DETOUR_FACTOR);
+        ReflectionTestUtils.setField(matchingService, "matrixEnabled", located);
+        // Serial evaluation: the stub answers instantly, so threads would only add hand-off cost
+        ReflectionTestUtils.setField(matchingService, "parallelEnabled", false);
+        ReflectionTestUtils.setField(matchingService, "deadlineMs", TimeUnit.MINUTES.toMillis(10));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, Object> findBestMatchByDistance() {
+        return matchingService.findBestMatchByDistance(rider);
+    }
+
+    @Benchmark
+    public List<ScoredRide> scoreCandidates() {
+        return matchingService.scoreCandidates(rider);
+    }
+}
@@ -0,0 +1,119 @@
+package carpool.matching.service;
+
+import carpool.common.geocoding.LocalGeocoder;
+import carpool.common.routing.OfflineRoutingEngine;
+import carpool.common.upstream.UpstreamClient;
+import carpool.matching.dto.MatchRequestDTO;
+import carpool.matching.util.GeoUtils;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+
+/**
+ * Deterministic ride data around Pune for the matching benchmarks.
+ *
+ * Rides start and end at named stops scattered up to 25 km from the city centre, so
+ * only part of them fall inside the matching radius of the benchmark rider. The stops
+ * double as the gazetteer of the stubbed LocationService.
+ */
+class SyntheticRides {
+
+    static final double CENTER_LAT = 18.5204;
+    static final double CENTER_LON = 73.8567;
+    static final double SPREAD_KM = 25.0;
+    static final int STOP_COUNT = 500;
+
+    private final Map<String, double[]> stops = new HashMap<>();
+    private final List<String> stopNames = new ArrayList<>();
+    private final Random random;
+
+    SyntheticRides(long seed) {
+        this.random = new Random(seed);
+        for (int i = 0; i < STOP_COUNT; i++) {
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            double distanceKm = Math.sqrt(random.nextDouble()) * SPREAD_KM;
+            double lat = CENTER_LAT + distanceKm * Math.cos(bearing) / 111.32;
+            double lon = CENTER_LON + distanceKm * Math.sin(bearing) / (111.32 * Math.cos(Math.toRadians(CENTER_LAT)));
+
+            String name = "Stop " + i + ", Pune, Maharashtra, India";
+            stops.put(name, new double[]{lon, lat});
+            stopNames.add(name);
+        }
+    }
+
+    /**
+     * Active rides in the shape ride-service serializes them; without coordinates when located is false
+     */
+    List<Map<String, Object>> rides(int count, boolean located) {
+        List<Map<String, Object>> rides = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String pickup = stopNames.get(random.nextInt(STOP_COUNT));
+            String drop = stopNames.get(random.nextInt(STOP_COUNT));
+
+            Map<String, Object> ride = new HashMap<>();
+            ride.put("id", (long) i + 1);
+            ride.put("driverId", (long) (i % 1000) + 1);
+            ride.put("driverName", "Driver " + i);
+            ride.put("pickupLocation", pickup);
+            ride.put("dropLocation", drop);
+            ride.put("availableSeats", random.nextInt(4));
+            ride.put("status", "WAITING");
+            if (located) {
+                ride.put("pickupLatitude", stops.get(pickup)[1]);
+                ride.put("pickupLongitude", stops.get(pickup)[0]);
+                ride.put("dropLatitude", stops.get(drop)[1]);
+                ride.put("dropLongitude", stops.get(drop)[0]);
+            }
+            rides.add(ride);
+        }
+        return rides;
+    }
+
+    /**
+     * A rider travelling between two of the stops, with coordinates as ride-service sends them
+     */
+    MatchRequestDTO rider() {
+        String pickup = stopNames.get(0);
+        String drop = stopNames.get(1);
+
+        MatchRequestDTO dto = new MatchRequestDTO();
+        dto.setRequestId(1L);
+        dto.setPickupLocation(pickup);
+        dto.setDropLocation(drop);
+        dto.setPickupLatitude(stops.get(pickup)[1]);
+        dto.setPickupLongitude(stops.get(pickup)[0]);
+        dto.setDropLatitude(stops.get(drop)[1]);
+        dto.setDropLongitude(stops.get(drop)[0]);
+        return dto;
+    }
+
+    String stopName(int index) {
+        return stopNames.get(index);
+    }
+
+    /**
+     * LocationService that resolves the synthetic stops locally: no Nominatim, no OpenRouteService
+     */
+    LocationService locationService(double detourFactor) {
+        return new LocationService(new RestTemplate(), new GeocodeCache(),
+                new OfflineRoutingEngine("", 1.0), new LocalGeocoder(""),
+                new UpstreamClient(new StandardEnvironment(), 10_000)) {
+            @Override
+            public double calculateDistance(String location1, String location2) {
+                double[] from = stops.get(location1);
+                double[] to = stops.get(location2);
+                if (from == null || to == null) {
+                    return -1;
+                }
+                double km = GeoUtils.haversineKm(from[1], from[0], to[1], to[0]) * detourFactor;
+                return Math.round(km * 100.0) / 100.0;
+            }
+
+            @Override
+            public double[] geocode(String location) {
+                return stops.get(location);
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package carpool.matching.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class MatchingExecutorConfig {
+
+    /**
+     * Shared pool for evaluating candidate rides in parallel.
+     * Sized for blocking HTTP calls; each request only gets a slice of it (see matching.parallel.max-concurrency-per-request).
+     */
+    @Bean
+    public ThreadPoolTaskExecutor matchingExecutor(
+            @Value("${matching.parallel.pool-size:16}") int poolSize,
+            @Value("${matching.parallel.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("matching-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,31 +1,66 @@
 package carpool.matching.controller;
 
+import carpool.matching.dto.MatchCandidateDTO;
 import carpool.matching.dto.MatchRequestDTO;
 import carpool.matching.entity.Match;
+import carpool.matching.service.BatchMatchingService;
 import carpool.matching.service.MatchingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/matching")
 public class MatchingController {
     
+    private static final int MAX_TOP_K = 50;
+    
     @Autowired
     private MatchingService matchingService;
     
+    @Autowired
+    private BatchMatchingService batchMatchingService;
+    
     @PostMapping("/find-match")
     public ResponseEntity<?> findMatch(@RequestBody MatchRequestDTO dto) {
         try {
-            Match match = matchingService.findMatch(dto);
+            Match match = batchMatchingService.isEnabled()
+                ? batchMatchingService.findMatch(dto)
+                : matchingService.findMatch(dto);
             return ResponseEntity.ok(match);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
     
+    /**
+     * Ranked alternatives for a request, without booking any of them
+     * POST /api/matching/top-matches?k=5
+     */
+    @PostMapping("/top-matches")
+    public ResponseEntity<?> findTopMatches(@RequestBody MatchRequestDTO dto,
+                                            @RequestParam(defaultValue = "5") int k) {
+        try {
+            int limit = Math.max(1, Math.min(k, MAX_TOP_K));
+            List<MatchCandidateDTO> candidates = matchingService.findTopMatches(dto, limit);
+            return ResponseEntity.ok(Map.of(
+                "requestId", dto.getRequestId() != null ? dto.getRequestId() : -1,
+                "total", candidates.size(),
+                "candidates", candidates
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(matchingService.getStats());
+    }
+    
     @PutMapping("/{matchId}/accept")
     public ResponseEntity<?> acceptMatch(@PathVariable Long matchId) {
         try {
@@ -0,0 +1,29 @@
+package carpool.matching.controller;
+
+import carpool.matching.dto.RideEventDTO;
+import carpool.matching.service.ActiveRideIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/matching/events")
+public class RideEventController {
+    
+    @Autowired
+    private ActiveRideIndex rideIndex;
+    
+    /**
+     * Ride lifecycle / seat change events from ride-service
+     * POST /api/matching/events/rides
+     */
+    @PostMapping("/rides")
+    public ResponseEntity<?> onRideEvent(@RequestBody RideEventDTO event) {
+        try {
+            rideIndex.apply(event);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package carpool.matching.dto;
+
+import lombok.Data;
+
+/**
+ * One ranked alternative returned by the top-K endpoint
+ */
+@Data
+public class MatchCandidateDTO {
+    private Long rideId;
+    private Long driverId;
+    private String driverName;
+    private String pickupLocation;
+    private String dropLocation;
+    private Integer availableSeats;
+    private Integer score;
+    private Double pickupDistanceKm; // Road distance between the pickups, -1 if unknown
+    private Double dropDistanceKm;   // Road distance between the drops, -1 if unknown
+}
@@ -7,6 +7,10 @@ public class MatchRequestDTO {
     private Long requestId;
     private String pickupLocation;
     private String dropLocation;
+    private Double pickupLatitude;
+    private Double pickupLongitude;
+    private Double dropLatitude;
+    private Double dropLongitude;
 	public Long getRequestId() {
 		return requestId;
 	}
@@ -25,5 +29,29 @@ public class MatchRequestDTO {
 	public void setDropLocation(String dropLocation) {
 		this.dropLocation = dropLocation;
 	}
+	public Double getPickupLatitude() {
+		return pickupLatitude;
+	}
+	public void setPickupLatitude(Double pickupLatitude) {
+		this.pickupLatitude = pickupLatitude;
+	}
+	public Double getPickupLongitude() {
+		return pickupLongitude;
+	}
+	public void setPickupLongitude(Double pickupLongitude) {
+		this.pickupLongitude = pickupLongitude;
+	}
+	public Double getDropLatitude() {
+		return dropLatitude;
+	}
+	public void setDropLatitude(Double dropLatitude) {
+		this.dropLatitude = dropLatitude;
+	}
+	public Double getDropLongitude() {
+		return dropLongitude;
+	}
+	public void setDropLongitude(Double dropLongitude) {
+		this.dropLongitude = dropLongitude;
+	}
     
 }
\ No newline at end of file
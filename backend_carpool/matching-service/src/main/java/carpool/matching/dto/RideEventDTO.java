@@ -0,0 +1,21 @@
+package carpool.matching.dto;
+
+import lombok.Data;
+import java.util.Map;
+
+/**
+ * Ride lifecycle / seat change event pushed by ride-service
+ */
+@Data
+public class RideEventDTO {
+    private EventType type;
+    private Long rideId;
+    private Long sequence;
+    private Map<String, Object> ride; // Ride as serialized by ride-service, null for REMOVED
+
+    public enum EventType {
+        CREATED,
+        UPDATED,
+        REMOVED
+    }
+}
@@ -0,0 +1,340 @@
+package carpool.matching.service;
+
+import carpool.matching.dto.RideEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident grid index of the active rides published by ride-service.
+ *
+ * Every ride is bucketed twice, once by its pickup cell and once by its drop cell,
+ * so a rider only has to look at rides whose both ends fall in cells that can be
+ * within the matching radius. Rides without coordinates cannot be placed on the
+ * grid and are always returned as candidates.
+ *
+ * The index is loaded from a snapshot of GET /api/rides/active on startup and then
+ * kept current by the ride events ride-service pushes. Every event carries a sequence
+ * number; the last one seen per ride is kept so late or duplicate deliveries, and
+ * snapshots older than an event already applied, cannot roll a ride back. Events at or
+ * below the sequence of the latest snapshot are dropped too, as the snapshot has them
+ * already. A periodic snapshot reconciles anything lost while this service was down.
+ *
+ * The route segments of every indexed ride are mirrored into the {@link RouteCorridorIndex}.
+ */
+@Component
+public class ActiveRideIndex {
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    @Value("${matching.index.cell-size-km:${matching.max-radius-km:15.0}}")
+    private double cellSizeKm;
+
+    @Value("${matching.ride-service.active-rides-url:http://localhost:8082/api/rides/active}")
+    private String activeRidesUrl;
+
+    private final RestTemplate restTemplate;
+    private final RouteCorridorIndex corridorIndex;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, Set<Long>> pickupCells = new HashMap<>();
+    private final Map<Long, Set<Long>> dropCells = new HashMap<>();
+    private final Set<Long> unlocated = new HashSet<>();
+    private final Map<Long, Long> lastSequence = new HashMap<>();
+    private long snapshotSequence = Long.MIN_VALUE; // Floor below which every event is stale
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded = false;
+
+    public ActiveRideIndex(RestTemplate restTemplate, RouteCorridorIndex corridorIndex) {
+        this.restTemplate = restTemplate;
+        this.corridorIndex = corridorIndex;
+    }
+
+    /**
+     * Build the registry from a snapshot as soon as the service is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSnapshot() {
+        refresh();
+    }
+
+    /**
+     * Safety net for events missed while this service was unreachable
+     */
+    @Scheduled(initialDelayString = "${matching.index.reconcile-interval-ms:300000}",
+               fixedDelayString = "${matching.index.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        refresh();
+    }
+
+    /**
+     * Reload the whole index from a ride-service snapshot
+     */
+    public void refresh() {
+        try {
+            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+                activeRidesUrl,
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<Map<String, Object>>() {}
+            );
+
+            Map<String, Object> body = response.getBody();
+            Object rides = body != null ? body.get("rides") : null;
+            Long sequence = body != null ? toLong(body.get("sequence")) : null;
+
+            List<Map<String, Object>> activeRides = new ArrayList<>();
+            if (rides instanceof List<?> list) {
+                for (Object ride : list) {
+                    if (ride instanceof Map<?, ?>) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> rideMap = (Map<String, Object>) ride;
+                        activeRides.add(rideMap);
+                    }
+                }
+            }
+
+            replaceAll(activeRides, sequence != null ? sequence : Long.MIN_VALUE);
+            System.out.println("Ride index loaded: " + size() + " active rides");
+        } catch (Exception e) {
+            System.err.println(" Ride index refresh failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replace the indexed rides with a snapshot taken at the given event sequence.
+     * Rides changed by a newer event keep the state that event gave them.
+     */
+    public void replaceAll(List<Map<String, Object>> rides, long snapshotSequence) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, Map<String, Object>> newer = new HashMap<>();
+            for (Map.Entry<Long, Long> seen : lastSequence.entrySet()) {
+                if (seen.getValue() > snapshotSequence) {
+                    Entry entry = entries.get(seen.getKey());
+                    newer.put(seen.getKey(), entry != null ? entry.ride : null);
+                }
+            }
+
+            entries.clear();
+            pickupCells.clear();
+            dropCells.clear();
+            unlocated.clear();
+            corridorIndex.clear();
+
+            for (Map<String, Object> ride : rides) {
+                if (!newer.containsKey(toLong(ride.get("id")))) {
+                    insert(ride);
+                }
+            }
+            for (Map<String, Object> ride : newer.values()) {
+                if (ride != null) {
+                    insert(ride);
+                }
+            }
+
+            // The snapshot supersedes every older event; its sequence stays as the floor for late ones
+            this.snapshotSequence = Math.max(this.snapshotSequence, snapshotSequence);
+            lastSequence.values().removeIf(sequence -> sequence <= this.snapshotSequence);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply a ride event. Only WAITING rides are kept, like GET /api/rides/active.
+     */
+    public void apply(RideEventDTO event) {
+        if (event.getRideId() == null || event.getSequence() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Long seen = lastSequence.get(event.getRideId());
+            if (event.getSequence() <= snapshotSequence || (seen != null && seen >= event.getSequence())) {
+                return;
+            }
+            lastSequence.put(event.getRideId(), event.getSequence());
+
+            Map<String, Object> ride = event.getRide();
+            delete(event.getRideId());
+            if (event.getType() != RideEventDTO.EventType.REMOVED && ride != null &&
+                "WAITING".equals(ride.get("status"))) {
+                insert(ride);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rides whose pickup cell is near the rider pickup AND whose drop cell is near the rider drop.
+     * The grid is coarser than the radius, so callers still have to check the real distance.
+     */
+    public List<Map<String, Object>> findCandidates(double pickupLat, double pickupLon,
+                                                    double dropLat, double dropLon,
+                                                    double radiusKm) {
+        lock.readLock().lock();
+        try {
+            Set<Long> nearPickup = collect(pickupCells, pickupLat, pickupLon, radiusKm);
+            Set<Long> nearDrop = collect(dropCells, dropLat, dropLon, radiusKm);
+            nearPickup.retainAll(nearDrop);
+            nearPickup.addAll(unlocated);
+
+            List<Map<String, Object>> candidates = new ArrayList<>(nearPickup.size());
+            for (Long rideId : nearPickup) {
+                candidates.add(entries.get(rideId).ride);
+            }
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every indexed ride, for riders whose coordinates are unknown
+     */
+    public List<Map<String, Object>> all() {
+        lock.readLock().lock();
+        try {
+            List<Map<String, Object>> rides = new ArrayList<>(entries.size());
+            for (Entry entry : entries.values()) {
+                rides.add(entry.ride);
+            }
+            return rides;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // --- INTERNALS (callers hold the write lock) ---
+
+    private void insert(Map<String, Object> ride) {
+        Long rideId = toLong(ride.get("id"));
+        if (rideId == null) {
+            return;
+        }
+
+        Double pickupLat = toDouble(ride.get("pickupLatitude"));
+        Double pickupLon = toDouble(ride.get("pickupLongitude"));
+        Double dropLat = toDouble(ride.get("dropLatitude"));
+        Double dropLon = toDouble(ride.get("dropLongitude"));
+
+        Entry entry = new Entry(ride);
+        if (pickupLat != null && pickupLon != null && dropLat != null && dropLon != null) {
+            entry.pickupCell = cellKey(row(pickupLat), col(pickupLon));
+            entry.dropCell = cellKey(row(dropLat), col(dropLon));
+            entry.located = true;
+            pickupCells.computeIfAbsent(entry.pickupCell, k -> new HashSet<>()).add(rideId);
+            dropCells.computeIfAbsent(entry.dropCell, k -> new HashSet<>()).add(rideId);
+        } else {
+            unlocated.add(rideId);
+        }
+        entries.put(rideId, entry);
+        corridorIndex.add(rideId, ride);
+    }
+
+    private void delete(Long rideId) {
+        Entry entry = entries.remove(rideId);
+        if (entry == null) {
+            return;
+        }
+        corridorIndex.remove(rideId);
+        if (entry.located) {
+            removeFromCell(pickupCells, entry.pickupCell, rideId);
+            removeFromCell(dropCells, entry.dropCell, rideId);
+        } else {
+            unlocated.remove(rideId);
+        }
+    }
+
+    private void removeFromCell(Map<Long, Set<Long>> cells, long cell, Long rideId) {
+        Set<Long> rideIds = cells.get(cell);
+        if (rideIds != null) {
+            rideIds.remove(rideId);
+            if (rideIds.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    private Set<Long> collect(Map<Long, Set<Long>> cells, double lat, double lon, double radiusKm) {
+        long centerRow = row(lat);
+        long centerCol = col(lon);
+
+        // A degree of longitude shrinks towards the poles, so widen the column span
+        // using the latitude furthest from the equator that the radius can reach
+        double farthestLat = Math.min(89.0, Math.abs(lat) + radiusKm / KM_PER_DEGREE);
+        double lonCellKm = cellSizeKm * Math.cos(Math.toRadians(farthestLat));
+
+        long rowSpan = (long) Math.ceil(radiusKm / cellSizeKm);
+        long colSpan = (long) Math.ceil(radiusKm / lonCellKm);
+
+        Set<Long> rideIds = new HashSet<>();
+        for (long r = centerRow - rowSpan; r <= centerRow + rowSpan; r++) {
+            for (long c = centerCol - colSpan; c <= centerCol + colSpan; c++) {
+                Set<Long> cell = cells.get(cellKey(r, c));
+                if (cell != null) {
+                    rideIds.addAll(cell);
+                }
+            }
+        }
+        return rideIds;
+    }
+
+    private long row(double lat) {
+        return (long) Math.floor(lat * KM_PER_DEGREE / cellSizeKm);
+    }
+
+    private long col(double lon) {
+        return (long) Math.floor(lon * KM_PER_DEGREE / cellSizeKm);
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    private static class Entry {
+        final Map<String, Object> ride;
+        long pickupCell;
+        long dropCell;
+        boolean located;
+
+        Entry(Map<String, Object> ride) {
+            this.ride = ride;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package carpool.matching.service;
+
+import carpool.matching.dto.MatchRequestDTO;
+import carpool.matching.entity.Match;
+import carpool.matching.util.HungarianAlgorithm;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Optional micro-batch mode: match requests are collected for a short window and then
+ * assigned together, so two riders never race for the same seat while a nearby ride
+ * stays empty.
+ *
+ * Every ride is expanded into one column per free seat and the riders x seats cost
+ * matrix (100 - score) is solved with the Hungarian algorithm. This maximises the number
+ * of riders matched first and the total score second.
+ *
+ * Scoring the whole batch shares one deadline. A request is claimed before it is committed;
+ * if its caller gave up first, the batch leaves it alone and never books a seat for it.
+ */
+@Service
+public class BatchMatchingService {
+    
+    @Autowired
+    private MatchingService matchingService;
+    
+    @Value("${matching.batch.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${matching.batch.window-ms:2000}")
+    private long windowMs;
+    
+    @Value("${matching.parallel.deadline-ms:8000}")
+    private long deadlineMs;
+    
+    private final List<PendingRequest> queue = new ArrayList<>();
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Queue a request for the next batch and wait for its result
+     */
+    public Match findMatch(MatchRequestDTO dto) {
+        PendingRequest request = new PendingRequest(dto, new CompletableFuture<>());
+        synchronized (queue) {
+            queue.add(request);
+        }
+        
+        try {
+            try {
+                // One full window to be picked up, plus the scoring deadline, plus slack for the assignment itself
+                return request.result.get(2 * windowMs + deadlineMs + 5000, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (request.claim()) {
+                    request.result.cancel(false);
+                    throw new RuntimeException("Matching failed: batch assignment timed out");
+                }
+                // The batch is already committing this request: its outcome is the answer
+                return request.result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Matching failed: interrupted");
+        }
+    }
+    
+    /**
+     * Solve one batch every window
+     */
+    @Scheduled(fixedDelayString = "${matching.batch.window-ms:2000}")
+    public void flush() {
+        List<PendingRequest> batch;
+        synchronized (queue) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(queue);
+            queue.clear();
+        }
+        
+        try {
+            matchingService.ensureActiveRides();
+            assign(batch);
+        } catch (Exception e) {
+            System.err.println("❌ Batch matching failed: " + e.getMessage());
+            for (PendingRequest request : batch) {
+                request.result.completeExceptionally(new RuntimeException("Matching failed: " + e.getMessage()));
+            }
+        }
+    }
+    
+    private void assign(List<PendingRequest> batch) {
+        System.out.println("\n=== BATCH MATCHING: " + batch.size() + " requests ===");
+        
+        // Score every rider against the rides near them, all within one deadline
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        List<Map<Long, ScoredRide>> scoresByRider = new ArrayList<>(batch.size());
+        Map<Long, Map<String, Object>> rides = new LinkedHashMap<>();
+        
+        for (PendingRequest request : batch) {
+            Map<Long, ScoredRide> scores = new HashMap<>();
+            scoresByRider.add(scores);
+            if (request.isAbandoned()) {
+                continue; // caller already gave up: no seat column for it
+            }
+            try {
+                for (ScoredRide candidate : matchingService.scoreCandidates(request.dto, deadlineNanos)) {
+                    Long rideId = toLong(candidate.getRide().get("id"));
+                    // Same rule as greedy matching: a zero score is never a match
+                    if (rideId != null && candidate.getScore() > 0) {
+                        scores.put(rideId, candidate);
+                        rides.putIfAbsent(rideId, candidate.getRide());
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println(" Scoring failed for request " + request.dto.getRequestId() + ": " + e.getMessage());
+            }
+        }
+        
+        // One column per free seat, never more seats of a ride than there are riders
+        List<Long> seatColumns = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, Object>> ride : rides.entrySet()) {
+            Integer availableSeats = (Integer) ride.getValue().get("availableSeats");
+            int seats = Math.min(availableSeats != null ? availableSeats : 0, batch.size());
+            for (int s = 0; s < seats; s++) {
+                seatColumns.add(ride.getKey());
+            }
+        }
+        
+        double[][] cost = new double[batch.size()][seatColumns.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            for (int j = 0; j < seatColumns.size(); j++) {
+                ScoredRide candidate = scoresByRider.get(i).get(seatColumns.get(j));
+                cost[i][j] = candidate != null ? 100 - candidate.getScore() : HungarianAlgorithm.FORBIDDEN;
+            }
+        }
+        
+        int[] assignment = HungarianAlgorithm.solve(cost);
+        
+        int matched = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRequest request = batch.get(i);
+            if (!request.claim()) {
+                System.out.println(" Request " + request.dto.getRequestId() + " timed out before assignment, not committed");
+                continue;
+            }
+            if (assignment[i] < 0) {
+                request.result.completeExceptionally(
+                    new RuntimeException("Matching failed: No suitable rides found within acceptable distance"));
+                continue;
+            }
+            
+            Long rideId = seatColumns.get(assignment[i]);
+            try {
+                request.result.complete(matchingService.commitMatch(request.dto, rides.get(rideId)));
+                matched++;
+            } catch (Exception e) {
+                request.result.completeExceptionally(new RuntimeException("Matching failed: " + e.getMessage()));
+            }
+        }
+        
+        System.out.println("Batch assigned " + matched + "/" + batch.size() + " requests across " +
+                         rides.size() + " rides (" + seatColumns.size() + " seats)");
+    }
+    
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+    
+    private static class PendingRequest {
+        final MatchRequestDTO dto;
+        final CompletableFuture<Match> result;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        
+        PendingRequest(MatchRequestDTO dto, CompletableFuture<Match> result) {
+            this.dto = dto;
+            this.result = result;
+        }
+        
+        /**
+         * Take the request for completion, either by the batch or by its timed-out caller; only one wins
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true) && !result.isDone();
+        }
+        
+        boolean isAbandoned() {
+            return claimed.get() || result.isDone();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package carpool.matching.service;
+
+import java.util.Map;
+
+/**
+ * A ride whose route passes the rider's pickup on one segment and the drop on the same or a later one
+ */
+public class CorridorMatch {
+
+    private final Map<String, Object> ride;
+    private final int pickupSegment;
+    private final int dropSegment;
+    private final double pickupOffsetKm;
+    private final double dropOffsetKm;
+
+    public CorridorMatch(Map<String, Object> ride, int pickupSegment, int dropSegment,
+                         double pickupOffsetKm, double dropOffsetKm) {
+        this.ride = ride;
+        this.pickupSegment = pickupSegment;
+        this.dropSegment = dropSegment;
+        this.pickupOffsetKm = pickupOffsetKm;
+        this.dropOffsetKm = dropOffsetKm;
+    }
+
+    public Map<String, Object> getRide() {
+        return ride;
+    }
+
+    public int getPickupSegment() {
+        return pickupSegment;
+    }
+
+    public int getDropSegment() {
+        return dropSegment;
+    }
+
+    /**
+     * Straight-line distance from the rider's pickup to the route
+     */
+    public double getPickupOffsetKm() {
+        return pickupOffsetKm;
+    }
+
+    /**
+     * Straight-line distance from the rider's drop to the route
+     */
+    public double getDropOffsetKm() {
+        return dropOffsetKm;
+    }
+}
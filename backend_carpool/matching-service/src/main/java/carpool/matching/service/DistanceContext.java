@@ -0,0 +1,48 @@
+package carpool.matching.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Distances resolved while serving a single match request.
+ *
+ * The radius check and the scoring of a candidate ask for the same pickup and drop
+ * pairs; routing each pair through this context means OpenRouteService is called
+ * once per pair for the whole request.
+ */
+public class DistanceContext {
+
+    private final LocationService locationService;
+    private final Map<String, Double> distances = new ConcurrentHashMap<>();
+    private final AtomicInteger reused = new AtomicInteger();
+
+    public DistanceContext(LocationService locationService) {
+        this.locationService = locationService;
+    }
+
+    /**
+     * Road distance in km, or -1 when it could not be calculated
+     */
+    public double distance(String from, String to) {
+        String key = from + '\u0000' + to;
+
+        Double known = distances.get(key);
+        if (known != null) {
+            reused.incrementAndGet();
+            return known;
+        }
+
+        double distance = locationService.calculateDistance(from, to);
+        distances.put(key, distance);
+        return distance;
+    }
+
+    public int getCalculatedPairs() {
+        return distances.size();
+    }
+
+    public int getReusedLookups() {
+        return reused.get();
+    }
+}
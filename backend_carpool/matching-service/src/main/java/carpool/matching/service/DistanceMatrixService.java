@@ -0,0 +1,14 @@
+package carpool.matching.service;
+
+/**
+ * Road distances between many points in one call.
+ * Coordinates are [longitude, latitude], matching the geocoder output.
+ */
+public interface DistanceMatrixService {
+    
+    /**
+     * Distance in km from every source to every destination: result[source][destination].
+     * Pairs without a route are -1.
+     */
+    double[][] distances(double[][] sources, double[][] destinations);
+}
@@ -0,0 +1,117 @@
+package carpool.matching.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded, TTL-expiring cache of location name -> [longitude, latitude].
+ *
+ * Locations that could not be resolved are cached too (as a null coordinate) with
+ * a shorter TTL, so a misspelt place name does not hit Nominatim on every request.
+ */
+@Component
+public class GeocodeCache {
+
+    @Value("${matching.geocode-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${matching.geocode-cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${matching.geocode-cache.negative-ttl-minutes:30}")
+    private long negativeTtlMinutes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    // Access-ordered, so the eldest entry is always the least recently used one
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Cached lookup result, or null on a miss. A result with null coordinates is a cached failure.
+     */
+    public synchronized Entry get(String location) {
+        String key = normalize(location);
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (entry.coordinates == null) {
+            negativeHits.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Cache a lookup result; null coordinates mark a location that did not resolve
+     */
+    public synchronized void put(String location, double[] coordinates) {
+        long ttlMillis = (coordinates != null ? ttlMinutes : negativeTtlMinutes) * 60_000L;
+        entries.put(normalize(location), new Entry(coordinates, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.get());
+        stats.put("negativeHits", negativeHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        return stats;
+    }
+
+    /**
+     * Case and whitespace insensitive key, so "Hinjewadi Phase 1,Pune" and "hinjewadi phase 1, pune" share an entry
+     */
+    static String normalize(String location) {
+        return location.trim()
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("\\s*,\\s*", ", ")
+            .replaceAll("\\s+", " ");
+    }
+
+    public static class Entry {
+        private final double[] coordinates;
+        private final long expiresAt;
+
+        Entry(double[] coordinates, long expiresAt) {
+            this.coordinates = coordinates;
+            this.expiresAt = expiresAt;
+        }
+
+        public double[] getCoordinates() {
+            return coordinates;
+        }
+    }
+}
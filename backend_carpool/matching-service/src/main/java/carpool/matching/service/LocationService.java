@@ -1,12 +1,16 @@
 package carpool.matching.service;
 
+import carpool.common.geocoding.GazetteerIndex;
+import carpool.common.geocoding.LocalGeocoder;
+import carpool.common.routing.OfflineRoutingEngine;
+import carpool.common.routing.RouteEstimate;
+import carpool.common.upstream.UpstreamClient;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -27,13 +31,23 @@ public class LocationService {
     
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final GeocodeCache geocodeCache;
+    private final OfflineRoutingEngine routingEngine;
+    private final LocalGeocoder localGeocoder;
+    private final UpstreamClient upstreamClient;
     
     private static final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/search";
     private static final String USER_AGENT = "CarpoolApp/1.0";
     
-    public LocationService(RestTemplate restTemplate) {
+    public LocationService(RestTemplate restTemplate, GeocodeCache geocodeCache,
+                           OfflineRoutingEngine routingEngine, LocalGeocoder localGeocoder,
+                           UpstreamClient upstreamClient) {
         this.restTemplate = restTemplate;
         this.objectMapper = new ObjectMapper();
+        this.geocodeCache = geocodeCache;
+        this.routingEngine = routingEngine;
+        this.localGeocoder = localGeocoder;
+        this.upstreamClient = upstreamClient;
     }
     
     /**
@@ -50,6 +64,12 @@ public class LocationService {
                 return -1;
             }
             
+            // Offline road graph first, OpenRouteService when it cannot answer
+            RouteEstimate offline = routingEngine.route(coords1[1], coords1[0], coords2[1], coords2[0]);
+            if (offline != null) {
+                return Math.round(offline.getDistanceKm() * 100.0) / 100.0;
+            }
+            
             // Get directions using OpenRouteService
             String directionsResponse = getDirections(coords1, coords2);
             JsonNode root = objectMapper.readTree(directionsResponse);
@@ -69,40 +89,32 @@ public class LocationService {
     }
     
     /**
-     * Geocode location using Nominatim with India filter
+     * Resolve a location to [longitude, latitude], or null if it cannot be found
+     */
+    public double[] geocode(String location) {
+        return geocodeLocationNominatim(location);
+    }
+    
+    /**
+     * Geocode location from the local gazetteer, then the cache, then Nominatim with India filter
      */
     private double[] geocodeLocationNominatim(String location) {
+        double[] local = localGeocoder.geocode(location);
+        if (local != null) {
+            return local;
+        }
+        
+        GeocodeCache.Entry cached = geocodeCache.get(location);
+        if (cached != null) {
+            return cached.getCoordinates();
+        }
+        
         try {
-            String url = NOMINATIM_URL + 
-                "?q=" + URLEncoder.encode(location, StandardCharsets.UTF_8) +
-                "&format=json" +
-                "&limit=1" +
-                "&countrycodes=in";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("User-Agent", USER_AGENT);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                url, HttpMethod.GET, entity, String.class
-            );
+            double[] coordinates = fetchFromNominatim(location);
             
-            JsonNode results = objectMapper.readTree(response.getBody());
-            
-            if (results.isArray() && results.size() > 0) {
-                JsonNode firstResult = results.get(0);
-                double lat = firstResult.get("lat").asDouble();
-                double lon = firstResult.get("lon").asDouble();
-                
-                // Validate India bounds
-                if (lat < 8 || lat > 37 || lon < 68 || lon > 97) {
-                    return null;
-                }
-                
-                return new double[]{lon, lat};
-            }
-            
-            return null;
+            // Unresolvable names are cached as well; transport errors below are not
+            geocodeCache.put(location, coordinates);
+            return coordinates;
             
         } catch (Exception e) {
             System.err.println(" Geocoding error: " + e.getMessage());
@@ -110,6 +122,42 @@ public class LocationService {
         }
     }
     
+    /**
+     * Query Nominatim, returning null when the location has no result inside India
+     */
+    private double[] fetchFromNominatim(String location) throws Exception {
+        String url = NOMINATIM_URL + 
+            "?q=" + URLEncoder.encode(location, StandardCharsets.UTF_8) +
+            "&format=json" +
+            "&limit=1" +
+            "&countrycodes=in";
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("User-Agent", USER_AGENT);
+        HttpEntity<String> entity = new HttpEntity<>(headers);
+        
+        String body = upstreamClient.call("nominatim", url, () -> restTemplate.exchange(
+            url, HttpMethod.GET, entity, String.class
+        ).getBody());
+        
+        JsonNode results = objectMapper.readTree(body);
+        
+        if (results.isArray() && results.size() > 0) {
+            JsonNode firstResult = results.get(0);
+            double lat = firstResult.get("lat").asDouble();
+            double lon = firstResult.get("lon").asDouble();
+            
+            // Validate India bounds
+            if (lat < 8 || lat > 37 || lon < 68 || lon > 97) {
+                return null;
+            }
+            
+            return new double[]{lon, lat};
+        }
+        
+        return null;
+    }
+    
     /**
      * Get directions from OpenRouteService
      */
@@ -125,18 +173,23 @@ public class LocationService {
         
         HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
         
-        ResponseEntity<String> response = restTemplate.exchange(
+        return upstreamClient.call("ors", directionsUrl + requestBody, () -> restTemplate.exchange(
             directionsUrl, HttpMethod.POST, entity, String.class
-        );
-        
-        return response.getBody();
+        ).getBody());
     }
     
     /**
      * Check if pickup is within radius
      */
     public boolean isPickupWithinRadius(String riderPickup, String driverPickup) {
-        double distance = calculateDistance(riderPickup, driverPickup);
+        return isPickupWithinRadius(riderPickup, driverPickup, new DistanceContext(this));
+    }
+    
+    /**
+     * Check if pickup is within radius, reusing distances already resolved for this request
+     */
+    public boolean isPickupWithinRadius(String riderPickup, String driverPickup, DistanceContext distances) {
+        double distance = distances.distance(riderPickup, driverPickup);
         
         if (distance < 0) {
             // Fall back to string matching
@@ -155,7 +208,14 @@ public class LocationService {
      * Check if drop is within radius
      */
     public boolean isDropWithinRadius(String riderDrop, String driverDrop) {
-        double distance = calculateDistance(riderDrop, driverDrop);
+        return isDropWithinRadius(riderDrop, driverDrop, new DistanceContext(this));
+    }
+    
+    /**
+     * Check if drop is within radius, reusing distances already resolved for this request
+     */
+    public boolean isDropWithinRadius(String riderDrop, String driverDrop, DistanceContext distances) {
+        double distance = distances.distance(riderDrop, driverDrop);
         
         if (distance < 0) {
             boolean matches = normalizeLocation(riderDrop).equals(normalizeLocation(driverDrop));
@@ -174,14 +234,23 @@ public class LocationService {
      */
     public boolean isCompleteRouteMatch(String riderPickup, String riderDrop, 
                                        String driverPickup, String driverDrop) {
+        return isCompleteRouteMatch(riderPickup, riderDrop, driverPickup, driverDrop, new DistanceContext(this));
+    }
+    
+    /**
+     * Check if complete route matches, reusing distances already resolved for this request
+     */
+    public boolean isCompleteRouteMatch(String riderPickup, String riderDrop, 
+                                       String driverPickup, String driverDrop,
+                                       DistanceContext distances) {
         System.out.println("\n=== LOCATION MATCHING DEBUG ===");
         System.out.println("Rider: " + riderPickup + " → " + riderDrop);
         System.out.println("Driver: " + driverPickup + " → " + driverDrop);
         
-        boolean pickupMatch = isPickupWithinRadius(riderPickup, driverPickup);
+        boolean pickupMatch = isPickupWithinRadius(riderPickup, driverPickup, distances);
         System.out.println("Pickup match: " + pickupMatch);
         
-        boolean dropMatch = isDropWithinRadius(riderDrop, driverDrop);
+        boolean dropMatch = isDropWithinRadius(riderDrop, driverDrop, distances);
         System.out.println("Drop match: " + dropMatch);
         
         System.out.println("Overall route match: " + (pickupMatch && dropMatch));
@@ -195,9 +264,30 @@ public class LocationService {
      */
     public int calculateMatchingScore(String riderPickup, String riderDrop, 
                                      String driverPickup, String driverDrop) {
-        double pickupDistance = calculateDistance(riderPickup, driverPickup);
-        double dropDistance = calculateDistance(riderDrop, driverDrop);
+        return calculateMatchingScore(riderPickup, riderDrop, driverPickup, driverDrop, new DistanceContext(this));
+    }
+    
+    /**
+     * Calculate matching score (0-100), reusing distances already resolved for this request
+     */
+    public int calculateMatchingScore(String riderPickup, String riderDrop, 
+                                     String driverPickup, String driverDrop,
+                                     DistanceContext distances) {
+        double pickupDistance = distances.distance(riderPickup, driverPickup);
+        double dropDistance = distances.distance(riderDrop, driverDrop);
+        
+        int score = calculateMatchingScore(pickupDistance, dropDistance);
+        
+        System.out.println(" Matching score: " + score + "/100 (pickup: " + 
+                          pickupDistance + " km, drop: " + dropDistance + " km)");
         
+        return score;
+    }
+    
+    /**
+     * Calculate matching score (0-100) from already known road distances (-1 = unknown)
+     */
+    public int calculateMatchingScore(double pickupDistance, double dropDistance) {
         if (pickupDistance < 0 || dropDistance < 0) {
             return 50;
         }
@@ -208,22 +298,23 @@ public class LocationService {
             return 100;
         }
         
-        int score = (int) Math.max(0, 100 - (totalDistance * 10));
-        
-        System.out.println(" Matching score: " + score + "/100 (pickup: " + 
-                          pickupDistance + " km, drop: " + dropDistance + " km)");
-        
-        return score;
+        return (int) Math.max(0, 100 - (totalDistance * 10));
+    }
+    
+    /**
+     * Check a known road distance against the radius, falling back to string matching when it is unknown (-1)
+     */
+    public boolean isWithinRadius(double distance, String riderLocation, String driverLocation) {
+        if (distance < 0) {
+            return normalizeLocation(riderLocation).equals(normalizeLocation(driverLocation));
+        }
+        return distance <= maxRadiusKm;
     }
     
     /**
      * Normalize location string for comparison
      */
-    private String normalizeLocation(String location) {
-        return location.toLowerCase()
-            .replaceAll("[,\\s]+", "")
-            .replaceAll("phase\\d+", "")
-            .replaceAll("maharashtra", "")
-            .replaceAll("india", "");
+    String normalizeLocation(String location) {
+        return GazetteerIndex.normalize(location);
     }
 }
\ No newline at end of file
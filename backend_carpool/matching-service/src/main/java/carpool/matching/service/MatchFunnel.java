@@ -0,0 +1,76 @@
+package carpool.matching.service;
+
+/**
+ * How many rides survived each stage of a single match request
+ */
+public class MatchFunnel {
+    
+    private final int activeRides;
+    private int gridCandidates;
+    private int withSeats;
+    private int withinStraightLine;
+    private int withinRoadRadius;
+    private int alongRoute;
+    
+    public MatchFunnel(int activeRides) {
+        this.activeRides = activeRides;
+    }
+    
+    public void setGridCandidates(int gridCandidates) {
+        this.gridCandidates = gridCandidates;
+    }
+    
+    public void setWithSeats(int withSeats) {
+        this.withSeats = withSeats;
+    }
+    
+    public void setWithinStraightLine(int withinStraightLine) {
+        this.withinStraightLine = withinStraightLine;
+    }
+    
+    public void setWithinRoadRadius(int withinRoadRadius) {
+        this.withinRoadRadius = withinRoadRadius;
+    }
+    
+    public void setAlongRoute(int alongRoute) {
+        this.alongRoute = alongRoute;
+    }
+    
+    public int getGridPruned() {
+        return activeRides - gridCandidates;
+    }
+    
+    public int getSeatPruned() {
+        return gridCandidates - withSeats;
+    }
+    
+    public int getStraightLinePruned() {
+        return withSeats - withinStraightLine;
+    }
+    
+    public int getRoadPruned() {
+        return withinStraightLine - withinRoadRadius;
+    }
+    
+    public int getWithinRoadRadius() {
+        return withinRoadRadius;
+    }
+    
+    /**
+     * Rides matched only because their route passes the rider's pickup and drop
+     */
+    public int getAlongRoute() {
+        return alongRoute;
+    }
+    
+    @Override
+    public String toString() {
+        return "Match funnel: " + activeRides + " active" +
+               " | grid pruned " + getGridPruned() +
+               " | no seats " + getSeatPruned() +
+               " | straight-line pruned " + getStraightLinePruned() +
+               " | road pruned " + getRoadPruned() +
+               " | " + withinRoadRadius + " scored" +
+               " | " + alongRoute + " along route";
+    }
+}
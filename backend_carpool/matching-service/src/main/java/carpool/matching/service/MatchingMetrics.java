@@ -0,0 +1,44 @@
+package carpool.matching.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Totals of the per-request match funnels since startup
+ */
+@Component
+public class MatchingMetrics {
+    
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong gridPruned = new AtomicLong();
+    private final AtomicLong seatPruned = new AtomicLong();
+    private final AtomicLong straightLinePruned = new AtomicLong();
+    private final AtomicLong roadPruned = new AtomicLong();
+    private final AtomicLong scored = new AtomicLong();
+    private final AtomicLong alongRoute = new AtomicLong();
+    
+    public void record(MatchFunnel funnel) {
+        requests.incrementAndGet();
+        gridPruned.addAndGet(funnel.getGridPruned());
+        seatPruned.addAndGet(funnel.getSeatPruned());
+        straightLinePruned.addAndGet(funnel.getStraightLinePruned());
+        roadPruned.addAndGet(funnel.getRoadPruned());
+        scored.addAndGet(funnel.getWithinRoadRadius());
+        alongRoute.addAndGet(funnel.getAlongRoute());
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("gridPruned", gridPruned.get());
+        stats.put("seatPruned", seatPruned.get());
+        stats.put("straightLinePruned", straightLinePruned.get());
+        stats.put("roadPruned", roadPruned.get());
+        stats.put("scored", scored.get());
+        stats.put("alongRoute", alongRoute.get());
+        return stats;
+    }
+}
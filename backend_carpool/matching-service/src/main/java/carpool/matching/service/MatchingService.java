@@ -1,16 +1,22 @@
 package carpool.matching.service;
 
+import carpool.common.upstream.UpstreamClient;
+import carpool.matching.dto.MatchCandidateDTO;
 import carpool.matching.dto.MatchRequestDTO;
 import carpool.matching.entity.Match;
 import carpool.matching.repository.MatchRepository;
+import carpool.matching.util.GeoUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class MatchingService {
@@ -25,48 +31,67 @@ public class MatchingService {
     @Autowired
     private LocationService locationService;
     
+    @Autowired
+    private ActiveRideIndex rideIndex;
+    
+    @Autowired
+    private GeocodeCache geocodeCache;
+    
+    @Autowired
+    private MatchingMetrics matchingMetrics;
+    
+    @Autowired
+    private DistanceMatrixService distanceMatrixService;
+    
+    @Value("${matching.max-radius-km:15.0}")
+    private double maxRadiusKm;
+    
+    @Value("${matching.matrix.enabled:true}")
+    private boolean matrixEnabled;
+    
+    @Autowired
+    private ThreadPoolTaskExecutor matchingExecutor;
+    
+    @Value("${matching.parallel.enabled:true}")
+    private boolean parallelEnabled;
+    
+    @Value("${matching.parallel.max-concurrency-per-request:4}")
+    private int maxConcurrencyPerRequest;
+    
+    @Value("${matching.parallel.deadline-ms:8000}")
+    private long deadlineMs;
+    
+    @Value("${matching.prefilter.max-straight-line-km:${matching.max-radius-km:15.0}}")
+    private double maxStraightLineKm;
+    
+    @Autowired
+    private RouteCorridorIndex corridorIndex;
+    
+    @Autowired
+    private UpstreamClient upstreamClient;
+    
+    @Value("${matching.corridor.enabled:true}")
+    private boolean corridorEnabled;
+    
+    // Corridor offsets are straight lines; stretch them like the local matrix does so they rank fairly against road distances
+    @Value("${matching.matrix.detour-factor:1.3}")
+    private double detourFactor;
+    
     /**
      * Find matching ride for a ride request using intelligent distance-based algorithm
      */
     @org.springframework.transaction.annotation.Transactional
     public Match findMatch(MatchRequestDTO dto) {
         try {
-            // Get all active rides from Ride Service
-            String rideServiceUrl = "http://localhost:8082/api/rides/active";
-            
-            ResponseEntity<List<Map<String, Object>>> response = restTemplate.exchange(
-                rideServiceUrl,
-                HttpMethod.GET,
-                null,
-                new ParameterizedTypeReference<List<Map<String, Object>>>() {}
-            );
+            ensureActiveRides();
             
-            List<Map<String, Object>> activeRides = response.getBody();
-            
-            if (activeRides == null || activeRides.isEmpty()) {
-                throw new RuntimeException("No active rides available");
-            }
-            
-            System.out.println("found " + activeRides.size() + " active rides. Searching for best match...");
+            System.out.println("found " + rideIndex.size() + " active rides. Searching for best match...");
             
             // NEW: Find best match using distance-based algorithm
-            Map<String, Object> bestMatch = findBestMatchByDistance(dto, activeRides);
+            Map<String, Object> bestMatch = findBestMatchByDistance(dto);
             
             if (bestMatch != null) {
-                // Create match record
-                Match match = createMatchRecord(dto, bestMatch);
-                                // Update the RideRequest in Ride Service to set matchedRideId
-                try {
-                    String rideServiceSetMatchUrl = "http://localhost:8082/api/rides/request/" + dto.getRequestId() + "/set-matched/" + getLongValue(bestMatch.get("id"));
-                    restTemplate.put(rideServiceSetMatchUrl, null);
-                    System.out.println(" Notified ride-service to set matchedRideId for request " + dto.getRequestId());
-                } catch (Exception e) {
-                    System.err.println(" Failed to update RideRequest matchedRideId: " + e.getMessage());
-                }
-                // Notify driver via Notification Service
-                notifyDriver(match);
-                
-                return match;
+                return commitMatch(dto, bestMatch);
             }
             
             throw new RuntimeException("No suitable rides found within acceptable distance");
@@ -77,60 +102,403 @@ public class MatchingService {
         }
     }
     
+    /**
+     * Active rides are served from the resident index instead of being fetched per request
+     */
+    public void ensureActiveRides() {
+        if (!rideIndex.isLoaded()) {
+            rideIndex.refresh();
+        }
+        
+        if (rideIndex.size() == 0) {
+            throw new RuntimeException("No active rides available");
+        }
+    }
+    
+    /**
+     * Record the match, link it in ride-service and notify the driver
+     */
+    public Match commitMatch(MatchRequestDTO dto, Map<String, Object> ride) {
+        // Create match record
+        Match match = createMatchRecord(dto, ride);
+        // Update the RideRequest in Ride Service to set matchedRideId
+        try {
+            String rideServiceSetMatchUrl = "http://localhost:8082/api/rides/request/" + dto.getRequestId() + "/set-matched/" + getLongValue(ride.get("id"));
+            restTemplate.put(rideServiceSetMatchUrl, null);
+            System.out.println(" Notified ride-service to set matchedRideId for request " + dto.getRequestId());
+        } catch (Exception e) {
+            System.err.println(" Failed to update RideRequest matchedRideId: " + e.getMessage());
+        }
+        // Notify driver via Notification Service
+        notifyDriver(match);
+        
+        return match;
+    }
+    
     /**
      * NEW: Find best matching ride based on distance and scoring
      */
-    private Map<String, Object> findBestMatchByDistance(MatchRequestDTO dto, List<Map<String, Object>> rides) {
+    Map<String, Object> findBestMatchByDistance(MatchRequestDTO dto) {
         Map<String, Object> bestRide = null;
         int highestScore = 0;
         
-        String riderPickup = dto.getPickupLocation();
-        String riderDrop = dto.getDropLocation();
+        for (ScoredRide candidate : scoreCandidates(dto)) {
+            // Keep track of best match (highest score)
+            if (candidate.getScore() > highestScore) {
+                highestScore = candidate.getScore();
+                bestRide = candidate.getRide();
+            }
+        }
         
-        for (Map<String, Object> ride : rides) {
-            String driverPickup = (String) ride.get("pickupLocation");
-            String driverDrop = (String) ride.get("dropLocation");
-            Integer availableSeats = (Integer) ride.get("availableSeats");
-            
-            // Check if seats available
-            if (availableSeats == null || availableSeats <= 0) {
+        if (bestRide != null) {
+            System.out.println("\n Best match found: Ride #" + bestRide.get("id") + 
+                             " with score " + highestScore + "/100");
+        }
+        
+        return bestRide;
+    }
+    
+    /**
+     * The K best scored rides for a request, best first. Nothing is booked.
+     * Candidates stream through a min-heap capped at K, so only K entries are ever ordered.
+     */
+    public List<MatchCandidateDTO> findTopMatches(MatchRequestDTO dto, int k) {
+        ensureActiveRides();
+        
+        Comparator<ScoredRide> worstFirst = Comparator
+            .comparingInt(ScoredRide::getScore)
+            .thenComparing(Comparator.comparingDouble(
+                (ScoredRide candidate) -> candidate.getPickupDistanceKm() + candidate.getDropDistanceKm()).reversed());
+        
+        PriorityQueue<ScoredRide> heap = new PriorityQueue<>(k + 1, worstFirst);
+        for (ScoredRide candidate : scoreCandidates(dto)) {
+            if (heap.size() < k) {
+                heap.offer(candidate);
+            } else if (worstFirst.compare(candidate, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(candidate);
+            }
+        }
+        
+        LinkedList<MatchCandidateDTO> ranked = new LinkedList<>();
+        while (!heap.isEmpty()) {
+            ranked.addFirst(toCandidate(heap.poll()));
+        }
+        return ranked;
+    }
+    
+    private MatchCandidateDTO toCandidate(ScoredRide scored) {
+        Map<String, Object> ride = scored.getRide();
+        
+        MatchCandidateDTO candidate = new MatchCandidateDTO();
+        candidate.setRideId(getLongValue(ride.get("id")));
+        candidate.setDriverId(getLongValue(ride.get("driverId")));
+        candidate.setDriverName((String) ride.get("driverName"));
+        candidate.setPickupLocation((String) ride.get("pickupLocation"));
+        candidate.setDropLocation((String) ride.get("dropLocation"));
+        candidate.setAvailableSeats((Integer) ride.get("availableSeats"));
+        candidate.setScore(scored.getScore());
+        candidate.setPickupDistanceKm(scored.getPickupDistanceKm());
+        candidate.setDropDistanceKm(scored.getDropDistanceKm());
+        return candidate;
+    }
+    
+    /**
+     * Every active ride whose route matches the request, with its score
+     */
+    public List<ScoredRide> scoreCandidates(MatchRequestDTO dto) {
+        return scoreCandidates(dto, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs));
+    }
+    
+    /**
+     * Same, with routing calls cut off at a deadline (System.nanoTime) the caller may share across requests
+     */
+    public List<ScoredRide> scoreCandidates(MatchRequestDTO dto, long deadlineNanos) {
+        double[] pickup = resolveCoordinates(dto.getPickupLatitude(), dto.getPickupLongitude(), dto.getPickupLocation());
+        double[] drop = resolveCoordinates(dto.getDropLatitude(), dto.getDropLongitude(), dto.getDropLocation());
+        
+        MatchFunnel funnel = new MatchFunnel(rideIndex.size());
+        
+        // Stage 1: grid cells around the rider
+        List<Map<String, Object>> rides = findCandidateRides(pickup, drop);
+        funnel.setGridCandidates(rides.size());
+        
+        // Stage 2: seats
+        rides = rides.stream()
+            .filter(ride -> {
+                Integer availableSeats = (Integer) ride.get("availableSeats");
+                return availableSeats != null && availableSeats > 0;
+            })
+            .toList();
+        funnel.setWithSeats(rides.size());
+        
+        // Stage 3: straight-line distance, before any OpenRouteService call
+        rides = filterByStraightLine(rides, pickup, drop);
+        funnel.setWithinStraightLine(rides.size());
+        
+        // Stage 4: road distance and scoring
+        List<ScoredRide> scored = new ArrayList<>();
+        List<Map<String, Object>> pairwise = rides;
+        
+        if (matrixEnabled && pickup != null && drop != null) {
+            List<Map<String, Object>> located = new ArrayList<>();
+            pairwise = new ArrayList<>();
+            for (Map<String, Object> ride : rides) {
+                if (getCoordinates(ride, "pickup") != null && getCoordinates(ride, "drop") != null) {
+                    located.add(ride);
+                } else {
+                    pairwise.add(ride);
+                }
+            }
+            scoreWithMatrix(dto, located, pickup, drop, scored);
+        }
+        
+        scorePairwise(dto, pairwise, scored, deadlineNanos);
+        funnel.setWithinRoadRadius(scored.size());
+        
+        // Stage 5: rides that pass both points along their route, whatever their endpoints
+        if (corridorEnabled && pickup != null && drop != null) {
+            funnel.setAlongRoute(scoreAlongRoute(pickup, drop, scored));
+        }
+        
+        matchingMetrics.record(funnel);
+        System.out.println(funnel);
+        
+        return scored;
+    }
+    
+    /**
+     * Add the rides from the route corridor index that were not already scored on their endpoints.
+     * Their score uses the straight-line distances from the rider's pickup and drop to the route,
+     * stretched by the road detour factor and held to the same radius as endpoint matches.
+     */
+    private int scoreAlongRoute(double[] pickup, double[] drop, List<ScoredRide> scored) {
+        Set<Long> seen = new HashSet<>();
+        for (ScoredRide candidate : scored) {
+            seen.add(getLongValue(candidate.getRide().get("id")));
+        }
+        
+        int added = 0;
+        double corridorRadiusKm = maxRadiusKm / detourFactor;
+        for (CorridorMatch match : corridorIndex.findAlongRoute(pickup[1], pickup[0], drop[1], drop[0], corridorRadiusKm)) {
+            if (!seen.add(getLongValue(match.getRide().get("id")))) {
                 continue;
             }
+            double pickupKm = Math.round(match.getPickupOffsetKm() * detourFactor * 100.0) / 100.0;
+            double dropKm = Math.round(match.getDropOffsetKm() * detourFactor * 100.0) / 100.0;
+            int score = locationService.calculateMatchingScore(pickupKm, dropKm);
+            scored.add(new ScoredRide(match.getRide(), score, pickupKm, dropKm));
+            added++;
             
-            System.out.println("\n Checking ride #" + ride.get("id") + 
-                             " (" + driverPickup + " → " + driverDrop + ")");
+            System.out.println(" Ride #" + match.getRide().get("id") + " passes the rider on segments " +
+                             match.getPickupSegment() + "-" + match.getDropSegment() + ", score " + score);
+        }
+        return added;
+    }
+    
+    /**
+     * Score all located candidates from a single distance matrix call:
+     * rider pickup against every driver pickup and rider drop against every driver drop.
+     */
+    private void scoreWithMatrix(MatchRequestDTO dto, List<Map<String, Object>> rides,
+                                 double[] pickup, double[] drop, List<ScoredRide> scored) {
+        int n = rides.size();
+        if (n == 0) {
+            return;
+        }
+        
+        double[][] destinations = new double[2 * n][];
+        for (int i = 0; i < n; i++) {
+            destinations[i] = getCoordinates(rides.get(i), "pickup");
+            destinations[n + i] = getCoordinates(rides.get(i), "drop");
+        }
+        
+        double[][] matrix = distanceMatrixService.distances(new double[][]{pickup, drop}, destinations);
+        double[] pickupKm = matrix[0];
+        double[] dropKm = matrix[1];
+        
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> ride = rides.get(i);
+            double pickupDistance = pickupKm[i];
+            double dropDistance = dropKm[n + i];
             
-            // NEW: Use LocationService to check if route matches
-            boolean routeMatches = locationService.isCompleteRouteMatch(
-                riderPickup, riderDrop, 
-                driverPickup, driverDrop
-            );
+            boolean routeMatches =
+                locationService.isWithinRadius(pickupDistance, dto.getPickupLocation(), (String) ride.get("pickupLocation")) &&
+                locationService.isWithinRadius(dropDistance, dto.getDropLocation(), (String) ride.get("dropLocation"));
             
             if (routeMatches) {
-                // Calculate matching score
-                int score = locationService.calculateMatchingScore(
-                    riderPickup, riderDrop,
-                    driverPickup, driverDrop
-                );
-                
-                System.out.println("Route matches! Score: " + score);
+                int score = locationService.calculateMatchingScore(pickupDistance, dropDistance);
+                scored.add(new ScoredRide(ride, score, pickupDistance, dropDistance));
+            }
+        }
+        
+        System.out.println("Matrix scoring: " + n + " rides in one call, " + scored.size() + " within radius");
+    }
+    
+    /**
+     * Score candidates one directions call at a time, for rides or riders without coordinates.
+     * In parallel mode up to maxConcurrencyPerRequest candidates are in flight at once; when the
+     * deadline passes the outstanding ones are cancelled and whatever was scored so far is kept.
+     */
+    private void scorePairwise(MatchRequestDTO dto, List<Map<String, Object>> rides,
+                               List<ScoredRide> scored, long deadlineNanos) {
+        if (rides.isEmpty()) {
+            return;
+        }
+        
+        // Shared by the radius check and the scoring, so each pair is routed once per request
+        DistanceContext distances = new DistanceContext(locationService);
+        
+        if (!parallelEnabled || rides.size() == 1) {
+            for (Map<String, Object> ride : rides) {
+                if (System.nanoTime() > deadlineNanos) {
+                    System.out.println(" Matching deadline reached, skipping remaining candidates");
+                    break;
+                }
+                ScoredRide candidate = evaluatePairwise(dto, ride, distances);
+                if (candidate != null) {
+                    scored.add(candidate);
+                }
+            }
+        } else {
+            ExecutorCompletionService<ScoredRide> completion = new ExecutorCompletionService<>(matchingExecutor);
+            List<Future<ScoredRide>> inFlight = new ArrayList<>();
+            Iterator<Map<String, Object>> pending = rides.iterator();
+            int running = 0;
+            
+            try {
+                while (running < maxConcurrencyPerRequest && pending.hasNext()) {
+                    Map<String, Object> ride = pending.next();
+                    inFlight.add(completion.submit(() -> evaluatePairwise(dto, ride, distances)));
+                    running++;
+                }
                 
-                // Keep track of best match (highest score)
-                if (score > highestScore) {
-                    highestScore = score;
-                    bestRide = ride;
+                while (running > 0) {
+                    long remaining = deadlineNanos - System.nanoTime();
+                    Future<ScoredRide> done = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (done == null) {
+                        System.out.println(" Matching deadline reached with " + running + " candidates still running");
+                        break;
+                    }
+                    running--;
+                    
+                    try {
+                        ScoredRide candidate = done.get();
+                        if (candidate != null) {
+                            scored.add(candidate);
+                        }
+                    } catch (ExecutionException e) {
+                        System.err.println(" Candidate evaluation failed: " + e.getCause().getMessage());
+                    }
+                    
+                    if (pending.hasNext()) {
+                        Map<String, Object> ride = pending.next();
+                        inFlight.add(completion.submit(() -> evaluatePairwise(dto, ride, distances)));
+                        running++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                for (Future<ScoredRide> future : inFlight) {
+                    future.cancel(true);
                 }
-            } else {
-                System.out.println(" Route doesn't match (outside radius)");
             }
         }
         
-        if (bestRide != null) {
-            System.out.println("\n Best match found: Ride #" + bestRide.get("id") + 
-                             " with score " + highestScore + "/100");
+        System.out.println("Distance lookups: " + distances.getCalculatedPairs() + " routed, " +
+                         distances.getReusedLookups() + " reused");
+    }
+    
+    /**
+     * Radius check and score for a single candidate, or null if the route does not match
+     */
+    private ScoredRide evaluatePairwise(MatchRequestDTO dto, Map<String, Object> ride, DistanceContext distances) {
+        String riderPickup = dto.getPickupLocation();
+        String riderDrop = dto.getDropLocation();
+        String driverPickup = (String) ride.get("pickupLocation");
+        String driverDrop = (String) ride.get("dropLocation");
+        
+        System.out.println("\n Checking ride #" + ride.get("id") + 
+                         " (" + driverPickup + " → " + driverDrop + ")");
+        
+        // NEW: Use LocationService to check if route matches
+        boolean routeMatches = locationService.isCompleteRouteMatch(
+            riderPickup, riderDrop, 
+            driverPickup, driverDrop,
+            distances
+        );
+        
+        if (!routeMatches) {
+            System.out.println(" Route doesn't match (outside radius)");
+            return null;
         }
         
-        return bestRide;
+        // Calculate matching score
+        int score = locationService.calculateMatchingScore(
+            riderPickup, riderDrop,
+            driverPickup, driverDrop,
+            distances
+        );
+        
+        System.out.println("Route matches! Score: " + score);
+        return new ScoredRide(ride, score,
+            distances.distance(riderPickup, driverPickup),
+            distances.distance(riderDrop, driverDrop));
+    }
+    
+    /**
+     * Look up only the rides in grid cells that can lie within the matching radius.
+     * Falls back to every active ride when the rider's coordinates are unknown.
+     */
+    private List<Map<String, Object>> findCandidateRides(double[] pickup, double[] drop) {
+        if (pickup == null || drop == null) {
+            return rideIndex.all();
+        }
+        
+        return rideIndex.findCandidates(pickup[1], pickup[0], drop[1], drop[0], maxRadiusKm);
+    }
+    
+    /**
+     * Drop rides whose pickup or drop is further than the straight-line bound from the rider's.
+     * Road distance is never shorter than the great-circle distance, so with the default bound
+     * (the matching radius) no ride that could pass the road check is lost.
+     * Rides or riders without coordinates are kept for the road check.
+     */
+    private List<Map<String, Object>> filterByStraightLine(List<Map<String, Object>> rides,
+                                                           double[] pickup, double[] drop) {
+        if (pickup == null || drop == null) {
+            return rides;
+        }
+        
+        List<Map<String, Object>> nearby = new ArrayList<>(rides.size());
+        for (Map<String, Object> ride : rides) {
+            double[] ridePickup = getCoordinates(ride, "pickup");
+            double[] rideDrop = getCoordinates(ride, "drop");
+            
+            if (ridePickup == null || rideDrop == null) {
+                nearby.add(ride);
+                continue;
+            }
+            
+            double pickupKm = GeoUtils.haversineKm(pickup[1], pickup[0], ridePickup[1], ridePickup[0]);
+            double dropKm = GeoUtils.haversineKm(drop[1], drop[0], rideDrop[1], rideDrop[0]);
+            
+            if (pickupKm <= maxStraightLineKm && dropKm <= maxStraightLineKm) {
+                nearby.add(ride);
+            }
+        }
+        return nearby;
+    }
+    
+    /**
+     * Use the coordinates sent by ride-service, geocoding the location name only when they are missing
+     */
+    private double[] resolveCoordinates(Double latitude, Double longitude, String location) {
+        if (latitude != null && longitude != null) {
+            return new double[]{longitude, latitude};
+        }
+        return location != null ? locationService.geocode(location) : null;
     }
     
     /**
@@ -147,6 +515,28 @@ public class MatchingService {
         return matchRepository.save(match);
     }
     
+    /**
+     * [longitude, latitude] of a ride's pickup or drop, or null if ride-service has no coordinates for it
+     */
+    private double[] getCoordinates(Map<String, Object> ride, String end) {
+        Double latitude = getDoubleValue(ride.get(end + "Latitude"));
+        Double longitude = getDoubleValue(ride.get(end + "Longitude"));
+        if (latitude == null || longitude == null) {
+            return null;
+        }
+        return new double[]{longitude, latitude};
+    }
+    
+    /**
+     * Helper method to safely convert Object to Double
+     */
+    private Double getDoubleValue(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return null;
+    }
+    
     /**
      * Helper method to safely convert Object to Long
      */
@@ -192,6 +582,18 @@ public class MatchingService {
         return matchRepository.save(match);
     }
     
+    /**
+     * Runtime counters of the matching pipeline
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeRides", rideIndex.size());
+        stats.put("funnel", matchingMetrics.getStats());
+        stats.put("geocodeCache", geocodeCache.getStats());
+        stats.put("upstreams", upstreamClient.getStats());
+        return stats;
+    }
+    
     /**
      * Get matches for a driver
      */
@@ -0,0 +1,33 @@
+package carpool.matching.service;
+
+import carpool.common.routing.OfflineRoutingEngine;
+import carpool.common.routing.RouteEstimate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Distance matrix answered cell by cell from the embedded road graph (routing.graph-file).
+ * Enable with matching.matrix.provider=offline; pairs the graph cannot route are -1.
+ */
+@Service
+@ConditionalOnProperty(name = "matching.matrix.provider", havingValue = "offline")
+public class OfflineDistanceMatrixService implements DistanceMatrixService {
+    
+    private final OfflineRoutingEngine routingEngine;
+    
+    public OfflineDistanceMatrixService(OfflineRoutingEngine routingEngine) {
+        this.routingEngine = routingEngine;
+    }
+    
+    @Override
+    public double[][] distances(double[][] sources, double[][] destinations) {
+        double[][] result = new double[sources.length][destinations.length];
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < destinations.length; j++) {
+                RouteEstimate route = routingEngine.route(sources[i][1], sources[i][0], destinations[j][1], destinations[j][0]);
+                result[i][j] = route != null ? Math.round(route.getDistanceKm() * 100.0) / 100.0 : -1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package carpool.matching.service;
+
+import carpool.common.upstream.UpstreamClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+
+/**
+ * Distance matrix backed by the OpenRouteService matrix endpoint
+ */
+@Service
+@ConditionalOnProperty(name = "matching.matrix.provider", havingValue = "ors", matchIfMissing = true)
+public class OrsDistanceMatrixService implements DistanceMatrixService {
+    
+    @Value("${openrouteservice.api-key}")
+    private String apiKey;
+    
+    @Value("${openrouteservice.matrix-url:https://api.openrouteservice.org/v2/matrix/driving-car}")
+    private String matrixUrl;
+    
+    // ORS rejects matrices above a fixed number of routes, so large batches are split by destination
+    @Value("${matching.matrix.max-destinations-per-request:500}")
+    private int maxDestinationsPerRequest;
+    
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final UpstreamClient upstreamClient;
+    
+    public OrsDistanceMatrixService(RestTemplate restTemplate, UpstreamClient upstreamClient) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = new ObjectMapper();
+        this.upstreamClient = upstreamClient;
+    }
+    
+    @Override
+    public double[][] distances(double[][] sources, double[][] destinations) {
+        double[][] result = new double[sources.length][destinations.length];
+        for (double[] row : result) {
+            Arrays.fill(row, -1);
+        }
+        
+        for (int from = 0; from < destinations.length; from += maxDestinationsPerRequest) {
+            int to = Math.min(destinations.length, from + maxDestinationsPerRequest);
+            try {
+                fetchChunk(sources, destinations, from, to, result);
+            } catch (Exception e) {
+                System.err.println("Error fetching distance matrix: " + e.getMessage());
+            }
+        }
+        
+        return result;
+    }
+    
+    private void fetchChunk(double[][] sources, double[][] destinations, int from, int to,
+                            double[][] result) throws Exception {
+        ObjectNode body = objectMapper.createObjectNode();
+        ArrayNode locations = body.putArray("locations");
+        ArrayNode sourceIndexes = body.putArray("sources");
+        ArrayNode destinationIndexes = body.putArray("destinations");
+        
+        for (int i = 0; i < sources.length; i++) {
+            locations.addArray().add(sources[i][0]).add(sources[i][1]);
+            sourceIndexes.add(i);
+        }
+        for (int j = from; j < to; j++) {
+            locations.addArray().add(destinations[j][0]).add(destinations[j][1]);
+            destinationIndexes.add(sources.length + j - from);
+        }
+        body.putArray("metrics").add("distance");
+        body.put("units", "km");
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", apiKey);
+        headers.set("Content-Type", "application/json");
+        
+        String requestBody = objectMapper.writeValueAsString(body);
+        HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
+        
+        String response = upstreamClient.call("ors", matrixUrl + requestBody, () -> restTemplate.exchange(
+            matrixUrl, HttpMethod.POST, entity, String.class
+        ).getBody());
+        
+        JsonNode distances = objectMapper.readTree(response).get("distances");
+        if (distances == null || !distances.isArray()) {
+            return;
+        }
+        
+        for (int i = 0; i < sources.length && i < distances.size(); i++) {
+            JsonNode row = distances.get(i);
+            for (int j = from; j < to && j - from < row.size(); j++) {
+                JsonNode cell = row.get(j - from);
+                if (cell != null && cell.isNumber()) {
+                    result[i][j] = Math.round(cell.asDouble() * 100.0) / 100.0;
+                }
+            }
+        }
+    }
+}
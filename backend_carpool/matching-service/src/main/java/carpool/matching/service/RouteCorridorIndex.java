@@ -0,0 +1,285 @@
+package carpool.matching.service;
+
+import carpool.matching.util.GeoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from grid cells to the route segments of active rides that cross them.
+ *
+ * Lets a rider match a ride that passes near their pickup and, further along the same
+ * route, near their drop, even when neither endpoint of the ride is close to theirs.
+ * Segments are rasterised onto the same grid as {@link ActiveRideIndex}, which keeps this
+ * index in step with the ride events it applies. Per-segment free seats come from the
+ * segments' occupiedSeats, so a ride that is full on part of the rider's trip is skipped.
+ */
+@Component
+public class RouteCorridorIndex {
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    @Value("${matching.index.cell-size-km:${matching.max-radius-km:15.0}}")
+    private double cellSizeKm;
+
+    private final Map<Long, Route> routes = new HashMap<>();
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Index the segments of a ride, replacing any previous version of it
+     */
+    public void add(Long rideId, Map<String, Object> ride) {
+        Route route = Route.of(ride);
+
+        lock.writeLock().lock();
+        try {
+            remove(rideId);
+            if (route == null) {
+                return;
+            }
+
+            for (int seq = 0; seq < route.segments.length; seq++) {
+                double[] segment = route.segments[seq];
+                if (segment == null) {
+                    continue;
+                }
+                for (long cell : rasterise(segment)) {
+                    cells.computeIfAbsent(cell, k -> new HashSet<>()).add(posting(rideId, seq));
+                    route.cells.add(cell);
+                }
+            }
+            routes.put(rideId, route);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long rideId) {
+        lock.writeLock().lock();
+        try {
+            Route route = routes.remove(rideId);
+            if (route == null) {
+                return;
+            }
+            for (long cell : route.cells) {
+                Set<Long> postings = cells.get(cell);
+                if (postings != null) {
+                    postings.removeIf(posting -> (posting >>> 16) == rideId);
+                    if (postings.isEmpty()) {
+                        cells.remove(cell);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            routes.clear();
+            cells.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rides whose route passes within radiusKm of the pickup on some segment i and of the drop
+     * on some segment j >= i, with a free seat on every segment from i to j
+     */
+    public List<CorridorMatch> findAlongRoute(double pickupLat, double pickupLon,
+                                              double dropLat, double dropLon,
+                                              double radiusKm) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Map<Integer, Double>> nearPickup = nearbySegments(pickupLat, pickupLon, radiusKm);
+            if (nearPickup.isEmpty()) {
+                return List.of();
+            }
+            Map<Long, Map<Integer, Double>> nearDrop = nearbySegments(dropLat, dropLon, radiusKm);
+
+            List<CorridorMatch> matches = new ArrayList<>();
+            for (Map.Entry<Long, Map<Integer, Double>> pickupHits : nearPickup.entrySet()) {
+                Map<Integer, Double> dropHits = nearDrop.get(pickupHits.getKey());
+                if (dropHits == null) {
+                    continue;
+                }
+
+                Route route = routes.get(pickupHits.getKey());
+                CorridorMatch best = null;
+                for (Map.Entry<Integer, Double> pickup : pickupHits.getValue().entrySet()) {
+                    for (Map.Entry<Integer, Double> drop : dropHits.entrySet()) {
+                        int from = pickup.getKey();
+                        int to = drop.getKey();
+                        if (from > to || !route.hasSeat(from, to)) {
+                            continue;
+                        }
+                        double offset = pickup.getValue() + drop.getValue();
+                        if (best == null || offset < best.getPickupOffsetKm() + best.getDropOffsetKm()) {
+                            best = new CorridorMatch(route.ride, from, to, pickup.getValue(), drop.getValue());
+                        }
+                    }
+                }
+                if (best != null) {
+                    matches.add(best);
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return routes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- INTERNALS ---
+
+    /**
+     * rideId -> segment position -> distance from the point to that segment, for segments within the radius
+     */
+    private Map<Long, Map<Integer, Double>> nearbySegments(double lat, double lon, double radiusKm) {
+        long centerRow = row(lat);
+        long centerCol = col(lon);
+        double farthestLat = Math.min(89.0, Math.abs(lat) + radiusKm / KM_PER_DEGREE);
+        double lonCellKm = cellSizeKm * Math.cos(Math.toRadians(farthestLat));
+
+        // One extra ring: a segment can cut the corner of a cell between two of its samples
+        long rowSpan = (long) Math.ceil(radiusKm / cellSizeKm) + 1;
+        long colSpan = (long) Math.ceil(radiusKm / lonCellKm) + 1;
+
+        Map<Long, Map<Integer, Double>> nearby = new HashMap<>();
+        for (long r = centerRow - rowSpan; r <= centerRow + rowSpan; r++) {
+            for (long c = centerCol - colSpan; c <= centerCol + colSpan; c++) {
+                Set<Long> postings = cells.get(cellKey(r, c));
+                if (postings == null) {
+                    continue;
+                }
+                for (long posting : postings) {
+                    long rideId = posting >>> 16;
+                    int seq = (int) (posting & 0xFFFF);
+                    Map<Integer, Double> segments = nearby.computeIfAbsent(rideId, k -> new HashMap<>());
+                    if (segments.containsKey(seq)) {
+                        continue;
+                    }
+                    double[] segment = routes.get(rideId).segments[seq];
+                    double km = GeoUtils.pointToSegmentKm(lat, lon, segment[0], segment[1], segment[2], segment[3]);
+                    if (km <= radiusKm) {
+                        segments.put(seq, km);
+                    }
+                }
+            }
+        }
+        nearby.values().removeIf(Map::isEmpty);
+        return nearby;
+    }
+
+    /**
+     * Cells touched by a segment, sampled every half cell along it
+     */
+    private Set<Long> rasterise(double[] segment) {
+        double lengthKm = GeoUtils.haversineKm(segment[0], segment[1], segment[2], segment[3]);
+        int steps = Math.max(1, (int) Math.ceil(lengthKm / (cellSizeKm / 2)));
+
+        Set<Long> touched = new HashSet<>();
+        for (int i = 0; i <= steps; i++) {
+            double t = (double) i / steps;
+            double lat = segment[0] + t * (segment[2] - segment[0]);
+            double lon = segment[1] + t * (segment[3] - segment[1]);
+            touched.add(cellKey(row(lat), col(lon)));
+        }
+        return touched;
+    }
+
+    private long row(double lat) {
+        return (long) Math.floor(lat * KM_PER_DEGREE / cellSizeKm);
+    }
+
+    private long col(double lon) {
+        return (long) Math.floor(lon * KM_PER_DEGREE / cellSizeKm);
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    private static long posting(long rideId, int seq) {
+        return (rideId << 16) | seq;
+    }
+
+    /**
+     * Segment geometry and free seats of one ride, in route order
+     */
+    private static class Route {
+        final Map<String, Object> ride;
+        final double[][] segments; // {startLat, startLng, endLat, endLng}, null without coordinates
+        final int[] freeSeats;
+        final Set<Long> cells = new HashSet<>();
+
+        Route(Map<String, Object> ride, double[][] segments, int[] freeSeats) {
+            this.ride = ride;
+            this.segments = segments;
+            this.freeSeats = freeSeats;
+        }
+
+        boolean hasSeat(int from, int to) {
+            for (int i = from; i <= to; i++) {
+                if (freeSeats[i] <= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Route of a ride as serialized by ride-service, or null if it has no segments
+         */
+        static Route of(Map<String, Object> ride) {
+            if (!(ride.get("segments") instanceof List<?> list) || list.isEmpty()) {
+                return null;
+            }
+
+            List<Map<?, ?>> segments = new ArrayList<>();
+            for (Object item : list) {
+                if (item instanceof Map<?, ?> segment) {
+                    segments.add(segment);
+                }
+            }
+            segments.sort(Comparator.comparingInt(segment -> toInt(segment.get("sequenceOrder"), 0)));
+
+            double[][] geometry = new double[segments.size()][];
+            int[] freeSeats = new int[segments.size()];
+            for (int i = 0; i < segments.size(); i++) {
+                Map<?, ?> segment = segments.get(i);
+                Double startLat = toDouble(segment.get("startLat"));
+                Double startLng = toDouble(segment.get("startLng"));
+                Double endLat = toDouble(segment.get("endLat"));
+                Double endLng = toDouble(segment.get("endLng"));
+                if (startLat != null && startLng != null && endLat != null && endLng != null) {
+                    geometry[i] = new double[]{startLat, startLng, endLat, endLng};
+                }
+                freeSeats[i] = toInt(segment.get("totalSeats"), 0) - toInt(segment.get("occupiedSeats"), 0);
+            }
+            return new Route(ride, geometry, freeSeats);
+        }
+
+        private static Double toDouble(Object value) {
+            return value instanceof Number number ? number.doubleValue() : null;
+        }
+
+        private static int toInt(Object value, int fallback) {
+            return value instanceof Number number ? number.intValue() : fallback;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package carpool.matching.service;
+
+import java.util.Map;
+
+/**
+ * A candidate ride that passed the radius check, with its score and road distances (-1 = unknown)
+ */
+public class ScoredRide {
+    
+    private final Map<String, Object> ride;
+    private final int score;
+    private final double pickupDistanceKm;
+    private final double dropDistanceKm;
+    
+    public ScoredRide(Map<String, Object> ride, int score, double pickupDistanceKm, double dropDistanceKm) {
+        this.ride = ride;
+        this.score = score;
+        this.pickupDistanceKm = pickupDistanceKm;
+        this.dropDistanceKm = dropDistanceKm;
+    }
+    
+    public Map<String, Object> getRide() {
+        return ride;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    public double getPickupDistanceKm() {
+        return pickupDistanceKm;
+    }
+    
+    public double getDropDistanceKm() {
+        return dropDistanceKm;
+    }
+}
@@ -0,0 +1,37 @@
+package carpool.matching.service;
+
+import carpool.matching.util.GeoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Offline distance matrix: great-circle distance stretched by a road detour factor.
+ * Enable with matching.matrix.provider=local for local runs and tests without ORS.
+ */
+@Service
+@ConditionalOnProperty(name = "matching.matrix.provider", havingValue = "local")
+public class StraightLineDistanceMatrixService implements DistanceMatrixService {
+    
+    @Value("${matching.matrix.detour-factor:1.3}")
+    private double detourFactor;
+    
+    public StraightLineDistanceMatrixService() {
+    }
+    
+    public StraightLineDistanceMatrixService(double detourFactor) {
+        this.detourFactor = detourFactor;
+    }
+    
+    @Override
+    public double[][] distances(double[][] sources, double[][] destinations) {
+        double[][] result = new double[sources.length][destinations.length];
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < destinations.length; j++) {
+                double km = GeoUtils.haversineKm(sources[i][1], sources[i][0], destinations[j][1], destinations[j][0]);
+                result[i][j] = Math.round(km * detourFactor * 100.0) / 100.0;
+            }
+        }
+        return result;
+    }
+}
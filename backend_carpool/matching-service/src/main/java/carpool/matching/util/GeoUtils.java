@@ -0,0 +1,49 @@
+package carpool.matching.util;
+
+public final class GeoUtils {
+    
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = 111.32;
+    
+    private GeoUtils() {
+    }
+    
+    /**
+     * Great-circle distance between two coordinates in kilometers.
+     * Never larger than the road distance, so it is safe for pruning.
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+    
+    /**
+     * Distance in kilometers from a point to the straight line between two others.
+     * Uses a flat projection around the point, which is accurate over a city-sized span.
+     */
+    public static double pointToSegmentKm(double lat, double lon,
+                                          double startLat, double startLon,
+                                          double endLat, double endLon) {
+        double kmPerDegreeLon = KM_PER_DEGREE * Math.cos(Math.toRadians(lat));
+        double ax = (startLon - lon) * kmPerDegreeLon;
+        double ay = (startLat - lat) * KM_PER_DEGREE;
+        double bx = (endLon - lon) * kmPerDegreeLon;
+        double by = (endLat - lat) * KM_PER_DEGREE;
+        
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+        
+        double x = ax + t * dx;
+        double y = ay + t * dy;
+        return Math.sqrt(x * x + y * y);
+    }
+}
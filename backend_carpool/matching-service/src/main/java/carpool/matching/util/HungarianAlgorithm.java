@@ -0,0 +1,107 @@
+package carpool.matching.util;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost assignment of rows to columns (Hungarian algorithm with potentials, O(n^2 m)).
+ * Rectangular matrices are fine; every row gets at most one column and vice versa.
+ */
+public final class HungarianAlgorithm {
+    
+    /**
+     * Cost of a pair that must not be assigned. Anything at or above it is reported as unassigned.
+     */
+    public static final double FORBIDDEN = 1e9;
+    
+    private HungarianAlgorithm() {
+    }
+    
+    /**
+     * @return for every row the assigned column, or -1 when the row stays unassigned
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        int cols = rows == 0 ? 0 : cost[0].length;
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, -1);
+        if (rows == 0 || cols == 0) {
+            return assignment;
+        }
+        
+        // The potential method needs rows <= columns, so solve the transpose otherwise
+        if (rows > cols) {
+            double[][] transposed = new double[cols][rows];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    transposed[j][i] = cost[i][j];
+                }
+            }
+            int[] byColumn = solve(transposed);
+            for (int j = 0; j < cols; j++) {
+                if (byColumn[j] >= 0) {
+                    assignment[byColumn[j]] = j;
+                }
+            }
+            return assignment;
+        }
+        
+        // 1-based arrays, column 0 is the virtual start column
+        double[] u = new double[rows + 1];
+        double[] v = new double[cols + 1];
+        int[] rowOfColumn = new int[cols + 1];
+        int[] way = new int[cols + 1];
+        
+        for (int i = 1; i <= rows; i++) {
+            rowOfColumn[0] = i;
+            int j0 = 0;
+            double[] minv = new double[cols + 1];
+            boolean[] used = new boolean[cols + 1];
+            Arrays.fill(minv, Double.MAX_VALUE);
+            
+            do {
+                used[j0] = true;
+                int i0 = rowOfColumn[j0];
+                double delta = Double.MAX_VALUE;
+                int j1 = 0;
+                
+                for (int j = 1; j <= cols; j++) {
+                    if (!used[j]) {
+                        double current = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                        if (current < minv[j]) {
+                            minv[j] = current;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                
+                for (int j = 0; j <= cols; j++) {
+                    if (used[j]) {
+                        u[rowOfColumn[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (rowOfColumn[j0] != 0);
+            
+            do {
+                int j1 = way[j0];
+                rowOfColumn[j0] = rowOfColumn[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        
+        for (int j = 1; j <= cols; j++) {
+            int row = rowOfColumn[j];
+            if (row != 0 && cost[row - 1][j - 1] < FORBIDDEN) {
+                assignment[row - 1] = j - 1;
+            }
+        }
+        return assignment;
+    }
+}
@@ -0,0 +1,162 @@
+package carpool.matching.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static carpool.matching.util.HungarianAlgorithm.FORBIDDEN;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HungarianAlgorithmTest {
+
+    @Test
+    void squareMatrixGetsTheCheapestAssignment() {
+        double[][] cost = {
+            {4, 1, 3},
+            {2, 0, 5},
+            {3, 2, 2}
+        };
+        int[] assignment = HungarianAlgorithm.solve(cost);
+
+        assertArrayEquals(new int[]{1, 0, 2}, assignment);
+        assertEquals(5, total(cost, assignment));
+    }
+
+    @Test
+    void moreSeatsThanRidersLeavesSeatsUnused() {
+        double[][] cost = {
+            {10, 3, 7, 1},
+            {2, 9, 4, 8}
+        };
+        int[] assignment = HungarianAlgorithm.solve(cost);
+
+        assertArrayEquals(new int[]{3, 0}, assignment);
+    }
+
+    @Test
+    void moreRidersThanSeatsLeavesTheCostliestUnassigned() {
+        double[][] cost = {
+            {5, 9},
+            {1, 8},
+            {7, 2}
+        };
+        int[] assignment = HungarianAlgorithm.solve(cost);
+
+        assertArrayEquals(new int[]{-1, 0, 1}, assignment);
+    }
+
+    @Test
+    void forbiddenPairsAreNeverAssigned() {
+        double[][] cost = {
+            {FORBIDDEN, 4},
+            {3, FORBIDDEN}
+        };
+        assertArrayEquals(new int[]{1, 0}, HungarianAlgorithm.solve(cost));
+
+        // Both riders only fit the same seat: one gets it, the other stays unassigned
+        double[][] contested = {
+            {FORBIDDEN, 6},
+            {FORBIDDEN, 2}
+        };
+        assertArrayEquals(new int[]{-1, 1}, HungarianAlgorithm.solve(contested));
+    }
+
+    @Test
+    void allForbiddenAssignsNothing() {
+        double[][] cost = {
+            {FORBIDDEN, FORBIDDEN, FORBIDDEN},
+            {FORBIDDEN, FORBIDDEN, FORBIDDEN}
+        };
+        assertArrayEquals(new int[]{-1, -1}, HungarianAlgorithm.solve(cost));
+        assertArrayEquals(new int[]{-1, -1, -1}, HungarianAlgorithm.solve(transpose(cost)));
+    }
+
+    @Test
+    void emptyMatrices() {
+        assertEquals(0, HungarianAlgorithm.solve(new double[0][0]).length);
+        assertArrayEquals(new int[]{-1, -1}, HungarianAlgorithm.solve(new double[2][0]));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomRectangularMatrices() {
+        Random random = new Random(42);
+        for (int round = 0; round < 300; round++) {
+            int rows = 1 + random.nextInt(5);
+            int cols = 1 + random.nextInt(5);
+            double[][] cost = new double[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    cost[i][j] = random.nextInt(5) == 0 ? FORBIDDEN : random.nextInt(100);
+                }
+            }
+
+            int[] assignment = HungarianAlgorithm.solve(cost);
+
+            Set<Integer> usedColumns = new HashSet<>();
+            for (int column : assignment) {
+                if (column >= 0) {
+                    assertTrue(usedColumns.add(column), "column assigned twice");
+                }
+            }
+            double[] best = bestByBruteForce(cost, 0, new boolean[cols], 0, 0);
+            assertEquals(best[0], matched(assignment), "matched count, round " + round);
+            assertEquals(best[1], total(cost, assignment), 1e-9, "total cost, round " + round);
+        }
+    }
+
+    // --- HELPERS ---
+
+    private static int matched(int[] assignment) {
+        int count = 0;
+        for (int column : assignment) {
+            if (column >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double total(double[][] cost, int[] assignment) {
+        double sum = 0;
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] >= 0) {
+                assertTrue(cost[i][assignment[i]] < FORBIDDEN, "forbidden pair assigned");
+                sum += cost[i][assignment[i]];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * {most rows matched, lowest cost among those}, trying every assignment
+     */
+    private static double[] bestByBruteForce(double[][] cost, int row, boolean[] used, int matched, double sum) {
+        if (row == cost.length) {
+            return new double[]{matched, sum};
+        }
+        double[] best = bestByBruteForce(cost, row + 1, used, matched, sum); // row unassigned
+        for (int j = 0; j < used.length; j++) {
+            if (!used[j] && cost[row][j] < FORBIDDEN) {
+                used[j] = true;
+                double[] option = bestByBruteForce(cost, row + 1, used, matched + 1, sum + cost[row][j]);
+                used[j] = false;
+                if (option[0] > best[0] || (option[0] == best[0] && option[1] < best[1])) {
+                    best = option;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double[][] transpose(double[][] matrix) {
+        double[][] transposed = new double[matrix[0].length][matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            for (int j = 0; j < matrix[0].length; j++) {
+                transposed[j][i] = matrix[i][j];
+            }
+        }
+        return transposed;
+    }
+}
@@ -2,10 +2,12 @@ package com.carpool.notification.controller;
 
 import com.carpool.notification.dto.SendNotificationDTO;
 import com.carpool.notification.model.Notification;
+import com.carpool.notification.service.NotificationHub;
 import com.carpool.notification.service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.util.List;
 
 @RestController
@@ -15,6 +17,9 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private NotificationHub notificationHub;
+    
     // Send notification (called by other services)
     @PostMapping("/send")
     public ResponseEntity<?> sendNotification(@RequestBody SendNotificationDTO dto) {
@@ -37,6 +42,22 @@ public class NotificationController {
         }
     }
     
+    // Live stream of a user's new notifications (Server-Sent Events, event "notification", id = notification id).
+    // Reconnecting with Last-Event-ID (or ?lastEventId=) replays the ones missed meanwhile.
+    @GetMapping("/user/{userId}/stream")
+    public SseEmitter streamNotifications(
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+            @RequestParam(required = false) Long lastEventId) {
+        return notificationService.subscribe(userId, lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
+    
+    // Open streams per shard
+    @GetMapping("/stream/stats")
+    public ResponseEntity<?> getStreamStats() {
+        return ResponseEntity.ok(notificationHub.getStats());
+    }
+    
     // Get unread notifications
     @GetMapping("/user/{userId}/unread")
     public ResponseEntity<?> getUnreadNotifications(@PathVariable Long userId) {
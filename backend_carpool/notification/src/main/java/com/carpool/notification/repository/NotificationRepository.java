@@ -7,4 +7,5 @@ import java.util.List;
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     List<Notification> findByUserIdOrderByCreatedAtDesc(Long userId);
     List<Notification> findByUserIdAndIsReadFalse(Long userId);
+    List<Notification> findTop100ByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id); // missed while reconnecting
 }
\ No newline at end of file
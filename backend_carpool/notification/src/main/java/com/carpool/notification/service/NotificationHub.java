@@ -0,0 +1,186 @@
+package com.carpool.notification.service;
+
+import com.carpool.notification.model.Notification;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+
+/**
+ * Live notification streams (Server-Sent Events), one or more per connected user.
+ *
+ * Sessions are kept in a fixed number of shards, each a plain map behind its own lock, so
+ * connects, disconnects and publishes for different users rarely contend. Locks only guard
+ * the maps; events are written outside them. An idle stream is an async servlet request:
+ * it holds a connection but no thread, and gets a heartbeat comment now and then so proxies
+ * keep it open and dead clients are dropped.
+ */
+@Component
+public class NotificationHub {
+
+    @Value("${notification-stream.shards:64}")
+    private int shardCount;
+
+    @Value("${notification-stream.timeout-ms:3600000}")
+    private long timeoutMs;
+
+    @Value("${notification-stream.retry-ms:5000}")
+    private long retryMs;
+
+    @Value("${notification-stream.max-sessions-per-user:5}")
+    private int maxSessionsPerUser;
+
+    private Shard[] shards;
+
+    @PostConstruct
+    public void init() {
+        int count = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1; // next power of two
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Open a stream for a user. The oldest session is closed if the user already has the maximum.
+     */
+    public SseEmitter connect(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitter.onCompletion(() -> disconnect(userId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> disconnect(userId, emitter));
+
+        Shard shard = shard(userId);
+        SseEmitter evicted = null;
+        synchronized (shard) {
+            List<SseEmitter> sessions = shard.sessions.computeIfAbsent(userId, id -> new ArrayList<>(1));
+            if (sessions.size() >= maxSessionsPerUser) {
+                evicted = sessions.remove(0);
+            }
+            sessions.add(emitter);
+        }
+        if (evicted != null) {
+            evicted.complete();
+        }
+
+        send(userId, emitter, SseEmitter.event().reconnectTime(retryMs).comment("connected"));
+        return emitter;
+    }
+
+    /**
+     * Push a stored notification to every open stream of its user
+     */
+    public void publish(Notification notification) {
+        for (SseEmitter emitter : sessions(notification.getUserId())) {
+            send(notification.getUserId(), emitter, event(notification));
+        }
+    }
+
+    /**
+     * Send notifications to one stream only, e.g. the ones it missed while reconnecting
+     */
+    public void replay(Long userId, SseEmitter emitter, List<Notification> notifications) {
+        for (Notification notification : notifications) {
+            if (!send(userId, emitter, event(notification))) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification-stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Shard shard : shards) {
+            Map<Long, List<SseEmitter>> copy;
+            synchronized (shard) {
+                if (shard.sessions.isEmpty()) {
+                    continue;
+                }
+                copy = new HashMap<>();
+                shard.sessions.forEach((userId, sessions) -> copy.put(userId, List.copyOf(sessions)));
+            }
+            copy.forEach((userId, sessions) -> {
+                for (SseEmitter emitter : sessions) {
+                    send(userId, emitter, SseEmitter.event().comment("heartbeat"));
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int users = 0;
+        int sessions = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                users += shard.sessions.size();
+                for (List<SseEmitter> userSessions : shard.sessions.values()) {
+                    sessions += userSessions.size();
+                }
+            }
+        }
+        return Map.of("shards", shards.length, "users", users, "sessions", sessions);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Shard shard : shards) {
+            List<SseEmitter> all = new ArrayList<>();
+            synchronized (shard) {
+                shard.sessions.values().forEach(all::addAll);
+                shard.sessions.clear();
+            }
+            all.forEach(SseEmitter::complete);
+        }
+    }
+
+    // --- INTERNALS ---
+
+    private static SseEmitter.SseEventBuilder event(Notification notification) {
+        return SseEmitter.event()
+            .id(String.valueOf(notification.getId()))
+            .name("notification")
+            .data(notification);
+    }
+
+    private boolean send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (Exception e) {
+            disconnect(userId, emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private List<SseEmitter> sessions(Long userId) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            List<SseEmitter> sessions = shard.sessions.get(userId);
+            return sessions != null ? List.copyOf(sessions) : List.of();
+        }
+    }
+
+    private void disconnect(Long userId, SseEmitter emitter) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            List<SseEmitter> sessions = shard.sessions.get(userId);
+            if (sessions != null && sessions.remove(emitter) && sessions.isEmpty()) {
+                shard.sessions.remove(userId);
+            }
+        }
+    }
+
+    private Shard shard(Long userId) {
+        int hash = userId.hashCode();
+        hash ^= hash >>> 16; // spread sequential ids
+        return shards[hash & (shards.length - 1)];
+    }
+
+    private static class Shard {
+        final Map<Long, List<SseEmitter>> sessions = new HashMap<>();
+    }
+}
@@ -5,6 +5,7 @@ import com.carpool.notification.model.Notification;
 import com.carpool.notification.repository.NotificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -14,6 +15,9 @@ public class NotificationService {
     @Autowired
     private NotificationRepository notificationRepository;
     
+    @Autowired
+    private NotificationHub notificationHub;
+    
     // Send notification to user
     public Notification sendNotification(SendNotificationDTO dto) {
         Notification notification = new Notification();
@@ -25,12 +29,24 @@ public class NotificationService {
         
         Notification saved = notificationRepository.save(notification);
         
-        // In production: Send push notification, SMS, email etc.
+        // Push to the user's open streams right away; SMS, email etc. would go here too
+        notificationHub.publish(saved);
         System.out.println(" NOTIFICATION SENT to User " + dto.getUserId() + ": " + dto.getMessage());
         
         return saved;
     }
     
+    // Open a live stream for a user, first replaying what came after lastEventId (if reconnecting).
+    // Registered before the replay is read, so a notification may arrive twice: clients skip known ids.
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        SseEmitter emitter = notificationHub.connect(userId);
+        if (lastEventId != null) {
+            notificationHub.replay(userId, emitter,
+                notificationRepository.findTop100ByUserIdAndIdGreaterThanOrderByIdAsc(userId, lastEventId));
+        }
+        return emitter;
+    }
+    
     // Get all notifications for a user
     public List<Notification> getUserNotifications(Long userId) {
         return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
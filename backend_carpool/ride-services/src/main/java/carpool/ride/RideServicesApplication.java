@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = {"carpool.ride", "carpool.common"})
 @EnableDiscoveryClient
+@EnableScheduling
 public class RideServicesApplication {
     public static void main(String[] args) {
         SpringApplication.run(RideServicesApplication.class, args);
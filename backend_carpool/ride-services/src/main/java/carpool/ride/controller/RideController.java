@@ -6,13 +6,21 @@ package carpool.ride.controller;
 import carpool.ride.dto.AddPassengerDTO;
 import carpool.ride.dto.CreateRideDTO;
 import carpool.ride.dto.CreateRideRequestDTO;
+import carpool.ride.dto.DeltaDTO;
 import carpool.ride.entity.Ride;
 import carpool.ride.entity.RidePassenger;
 import carpool.ride.entity.RideRequest;
+import carpool.ride.service.AvailableRidesSnapshot;
+import carpool.ride.service.RequestChangeLog;
+import carpool.ride.service.RequestEventStream;
+import carpool.ride.service.RideEventPublisher;
 import carpool.ride.service.RideService;
+import carpool.ride.util.RouteCache;
+import carpool.common.upstream.UpstreamClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -25,6 +33,24 @@ public class RideController {
     @Autowired
     private RideService rideService;
     
+    @Autowired
+    private RideEventPublisher rideEventPublisher;
+    
+    @Autowired
+    private AvailableRidesSnapshot availableRides;
+    
+    @Autowired
+    private RequestChangeLog requestChanges;
+    
+    @Autowired
+    private RequestEventStream requestEventStream;
+    
+    @Autowired
+    private UpstreamClient upstreamClient;
+    
+    @Autowired
+    private RouteCache routeCache;
+    
     // ==================== RIDE MANAGEMENT ====================
     
     /**
@@ -229,10 +255,13 @@ public class RideController {
     @GetMapping("/active")
     public ResponseEntity<?> getActiveRides() {
         try {
+            // Read before the query: events with a higher sequence are newer than this snapshot
+            long sequence = rideEventPublisher.currentSequence();
             List<Ride> rides = rideService.getActiveRides();
             return ResponseEntity.ok(Map.of(
                 "total", rides.size(),
-                "rides", rides
+                "rides", rides,
+                "sequence", sequence
             ));
         } catch (Exception e) {
             e.printStackTrace();
@@ -244,16 +273,50 @@ public class RideController {
     }
 
     /**
-     * Get available rides excluding rides the rider already requested
-     * GET /api/rides/available?riderId={riderId}
+     * Queue depth, wait times and coalescing of the calls to OpenRouteService and Nominatim
+     * GET /api/rides/stats/upstreams
+     */
+    @GetMapping("/stats/upstreams")
+    public ResponseEntity<?> getUpstreamStats() {
+        return ResponseEntity.ok(upstreamClient.getStats());
+    }
+    
+    /**
+     * Hit rate and pending writes of the persistent route distance cache
+     * GET /api/rides/stats/route-cache
+     */
+    @GetMapping("/stats/route-cache")
+    public ResponseEntity<?> getRouteCacheStats() {
+        return ResponseEntity.ok(routeCache.getStats());
+    }
+
+    /**
+     * Get available rides excluding rides the rider already requested (served from memory)
+     * GET /api/rides/available?riderId={riderId}[&pickupLat=&pickupLng=&dropLat=&dropLng=][&since={version}]
+     * With since, only the rides changed after that version are returned, unless it is too old
+     * (then the full list comes back with "full": true)
      */
     @GetMapping("/available")
-    public ResponseEntity<?> getAvailableRides(@RequestParam Long riderId) {
+    public ResponseEntity<?> getAvailableRides(
+            @RequestParam Long riderId,
+            @RequestParam(required = false) Double pickupLat,
+            @RequestParam(required = false) Double pickupLng,
+            @RequestParam(required = false) Double dropLat,
+            @RequestParam(required = false) Double dropLng,
+            @RequestParam(required = false) Long since) {
         try {
-            List<Ride> rides = rideService.getAvailableRidesForRider(riderId);
+            if (since != null) {
+                DeltaDTO delta = availableRides.changesForRider(since, pickupLat, pickupLng, dropLat, dropLng);
+                if (delta != null) {
+                    return ResponseEntity.ok(delta);
+                }
+            }
+            AvailableRidesSnapshot.Feed feed = availableRides.forRider(pickupLat, pickupLng, dropLat, dropLng);
             return ResponseEntity.ok(Map.of(
-                "total", rides.size(),
-                "rides", rides
+                "total", feed.getRides().size(),
+                "rides", feed.getRides(),
+                "version", feed.getVersion(),
+                "full", true
             ));
         } catch (Exception e) {
             e.printStackTrace();
@@ -531,17 +594,30 @@ public class RideController {
     
     /**
      * Get all pending ride requests for a specific ride
-     * GET /api/rides/{rideId}/requests
+     * GET /api/rides/{rideId}/requests[?since={version}]
+     * With since, only the requests changed after that version are returned, unless it is too old
+     * (then the full list comes back with "full": true)
      */
     @GetMapping("/{rideId}/requests")
-    public ResponseEntity<?> getPendingRequests(@PathVariable Long rideId) {
+    public ResponseEntity<?> getPendingRequests(@PathVariable Long rideId,
+                                                @RequestParam(required = false) Long since) {
         try {
+            if (since != null) {
+                DeltaDTO delta = rideService.getPendingRequestChanges(rideId, since);
+                if (delta != null) {
+                    return ResponseEntity.ok(delta);
+                }
+            }
+            // Version read before the list, so changes made meanwhile are sent again next time
+            long version = requestChanges.version();
             List<RideRequest> requests = rideService.getPendingRequestsForRide(rideId);
             
             return ResponseEntity.ok(Map.of(
                 "rideId", rideId,
                 "requests", requests,
-                "count", requests.size()
+                "count", requests.size(),
+                "version", version,
+                "full", true
             ));
             
         } catch (Exception e) {
@@ -553,6 +629,35 @@ public class RideController {
         }
     }
     
+    /**
+     * Stream a ride's incoming requests as Server-Sent Events (instead of polling the list)
+     * GET /api/rides/{rideId}/requests/stream
+     * Resumes after the Last-Event-ID header (or lastEventId param) when reconnecting
+     */
+    @GetMapping("/{rideId}/requests/stream")
+    public ResponseEntity<SseEmitter> streamRequests(
+            @PathVariable Long rideId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+            @RequestParam(required = false) Long lastEventId) {
+        // Typed as SseEmitter so Spring streams it; a wildcard body would be serialized as JSON
+        try {
+            return ResponseEntity.ok(requestEventStream.subscribe(rideId,
+                lastEventIdHeader != null ? lastEventIdHeader : lastEventId));
+        } catch (Exception e) {
+            System.err.println(" Request stream for ride " + rideId + " not opened: " + e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    /**
+     * Open request streams and their subscribers
+     * GET /api/rides/stats/request-streams
+     */
+    @GetMapping("/stats/request-streams")
+    public ResponseEntity<?> getRequestStreamStats() {
+        return ResponseEntity.ok(requestEventStream.getStats());
+    }
+    
     // ==================== TESTING/DEBUGGING ====================
     
     /**
@@ -0,0 +1,19 @@
+package carpool.ride.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes to a polled list since the version a client last saw
+ */
+@Data
+public class DeltaDTO {
+    private long since;
+    private long version;               // Pass back as since on the next poll
+    private boolean full = false;       // Always false: when a delta is not possible the full list is returned instead
+    private LocalDateTime cutoff;       // Entries created before this have aged out of the list, drop them
+    private List<Object> changed = new ArrayList<>(); // Added or changed entries, as in the full list
+    private List<Long> removed = new ArrayList<>();   // Ids not (or no longer) in the list
+}
@@ -0,0 +1,21 @@
+package carpool.ride.dto;
+
+import lombok.Data;
+import java.util.Map;
+
+/**
+ * Ride lifecycle / seat change event sent to subscribers such as matching-service
+ */
+@Data
+public class RideEventDTO {
+    private EventType type;
+    private Long rideId;
+    private Long sequence;          // Increases with every event, used to drop stale deliveries
+    private Map<String, Object> ride; // Ride as serialized by the API, null for REMOVED
+
+    public enum EventType {
+        CREATED,
+        UPDATED,
+        REMOVED
+    }
+}
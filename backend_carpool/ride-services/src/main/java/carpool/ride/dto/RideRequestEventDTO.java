@@ -0,0 +1,21 @@
+package carpool.ride.dto;
+
+import carpool.ride.entity.RideRequest;
+import lombok.Data;
+
+/**
+ * A committed change to a ride request, as streamed to drivers
+ */
+@Data
+public class RideRequestEventDTO {
+    private EventType type;
+    private Long version;           // Version of the request change log, the SSE event id
+    private RideRequest request;    // The request after the change
+
+    public enum EventType {
+        CREATED,
+        UPDATED,
+        ACCEPTED,
+        REJECTED
+    }
+}
@@ -0,0 +1,41 @@
+package carpool.ride.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Road distance and duration between two rounded coordinates, persisted by the route cache
+ */
+@Entity
+@Table(name = "route_distance_cache",
+       uniqueConstraints = @UniqueConstraint(
+           name = "uk_route_distance_cache_key",
+           columnNames = {"precisionDecimals", "fromLatKey", "fromLngKey", "toLatKey", "toLngKey"}))
+@Data
+public class CachedRoute {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Coordinates scaled by 10^precisionDecimals and rounded
+    @Column(nullable = false)
+    private Integer precisionDecimals;
+    
+    @Column(nullable = false)
+    private Long fromLatKey;
+    
+    @Column(nullable = false)
+    private Long fromLngKey;
+    
+    @Column(nullable = false)
+    private Long toLatKey;
+    
+    @Column(nullable = false)
+    private Long toLngKey;
+    
+    private Double distanceInKm;
+    private Double durationInSeconds;
+    
+    private LocalDateTime createdAt;
+}
@@ -5,7 +5,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "rides")
+@Table(name = "rides", indexes = {
+    // Available-rides page: active rides of the last day, newest first
+    @Index(name = "idx_rides_status_created", columnList = "status, createdAt")
+})
 @Data
 public class Ride {
     @Id
@@ -220,6 +223,7 @@ public class Ride {
     }
 
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "ride", fetch = FetchType.EAGER)
+    @OrderBy("sequenceOrder ASC")
     private java.util.List<RouteSegment> segments;
 
     public java.util.List<RouteSegment> getSegments() {
@@ -5,7 +5,9 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "ride_passengers")
+@Table(name = "ride_passengers", indexes = {
+    @Index(name = "idx_ride_passengers_ride_status", columnList = "rideId, status")
+})
 @Data
 public class RidePassenger {
     @Id
@@ -1,11 +1,17 @@
 package carpool.ride.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "ride_requests")
+@Table(name = "ride_requests", indexes = {
+    // Driver dashboard polls: pending requests linked to a ride, and pending requests on the same route
+    @Index(name = "idx_ride_requests_status_ride_created", columnList = "status, matchedRideId, createdAt"),
+    @Index(name = "idx_ride_requests_status_route_created", columnList = "status, pickupKey, dropKey, createdAt")
+})
 @Data
 public class RideRequest {
     @Id
@@ -36,6 +42,15 @@ public class RideRequest {
     
     private LocalDateTime createdAt;
     
+    // Normalized pickup/drop names, so route lookups can use an index instead of comparing ignoring case
+    @JsonIgnore
+    @Column(length = 191)
+    private String pickupKey;
+    
+    @JsonIgnore
+    @Column(length = 191)
+    private String dropKey;
+    
     public enum RequestStatus {
         PENDING,   // Waiting for match
         MATCHED,   // Matched with a ride
@@ -138,5 +153,23 @@ public class RideRequest {
 	public void setCreatedAt(LocalDateTime createdAt) {
 		this.createdAt = createdAt;
 	}
+
+	@PrePersist
+	@PreUpdate
+	void updateRouteKeys() {
+		this.pickupKey = routeKey(pickupLocation);
+		this.dropKey = routeKey(dropLocation);
+	}
+
+	/**
+	 * Normalized form of a location name, as stored in pickupKey and dropKey
+	 */
+	public static String routeKey(String location) {
+		if (location == null) {
+			return null;
+		}
+		String key = location.trim().toLowerCase(Locale.ROOT);
+		return key.length() > 191 ? key.substring(0, 191) : key;
+	}
     
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package carpool.ride.repository;
+
+import carpool.ride.entity.CachedRoute;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface CachedRouteRepository extends JpaRepository<CachedRoute, Long> {
+    List<CachedRoute> findByPrecisionDecimalsOrderByCreatedAtDesc(Integer precisionDecimals, Pageable pageable);
+}
@@ -3,6 +3,7 @@ package carpool.ride.repository;
 import carpool.ride.entity.RidePassenger;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import java.util.Collection;
 import java.util.List;
 
 public interface RidePassengerRepository extends JpaRepository<RidePassenger, Long> {
@@ -13,6 +14,9 @@ public interface RidePassengerRepository extends JpaRepository<RidePassenger, Lo
     // Get currently boarded passengers
     List<RidePassenger> findByRideIdAndStatus(Long rideId, RidePassenger.PassengerStatus status);
     
+    // Passengers of many rides at once, in the given statuses
+    List<RidePassenger> findByRideIdInAndStatusIn(Collection<Long> rideIds, Collection<RidePassenger.PassengerStatus> statuses);
+    
     // Get passengers who need to pay
     @Query("SELECT p FROM RidePassenger p WHERE p.status = 'DROPPED' AND p.paymentCompleted = false")
     List<RidePassenger> findPassengersNeedingPayment();
@@ -2,9 +2,39 @@ package carpool.ride.repository;
 
 import carpool.ride.entity.Ride;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface RideRepository extends JpaRepository<Ride, Long> {
     List<Ride> findByStatus(Ride.RideStatus status);
     List<Ride> findByDriverId(Long driverId);
+    
+    /**
+     * Rides in any of the statuses created after the cutoff, newest first, with their segments in the same query
+     */
+    @Query("SELECT DISTINCT r FROM Ride r LEFT JOIN FETCH r.segments " +
+           "WHERE r.status IN :statuses AND r.createdAt > :createdAfter ORDER BY r.createdAt DESC")
+    List<Ride> findActiveCreatedAfter(@Param("statuses") Collection<Ride.RideStatus> statuses,
+                                      @Param("createdAfter") LocalDateTime createdAfter);
+    
+    /**
+     * Decrement availableSeats unless the ride is already full. Returns 1 if a seat was taken.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.availableSeats = r.availableSeats - 1 WHERE r.id = :rideId AND r.availableSeats > 0")
+    int takeAvailableSeat(@Param("rideId") Long rideId);
+    
+    /**
+     * Increment availableSeats, never above totalSeats
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.availableSeats = r.availableSeats + 1 WHERE r.id = :rideId AND r.availableSeats < r.totalSeats")
+    int returnAvailableSeat(@Param("rideId") Long rideId);
 }
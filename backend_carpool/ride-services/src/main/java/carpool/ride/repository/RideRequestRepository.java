@@ -2,9 +2,48 @@ package carpool.ride.repository;
 
 import carpool.ride.entity.RideRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface RideRequestRepository extends JpaRepository<RideRequest, Long> {
     List<RideRequest> findByStatus(RideRequest.RequestStatus status);
     List<RideRequest> findByRiderId(Long riderId);
+    
+    // Served by idx_ride_requests_status_ride_created
+    List<RideRequest> findByStatusAndMatchedRideIdAndCreatedAtAfter(RideRequest.RequestStatus status,
+                                                                    Long matchedRideId,
+                                                                    LocalDateTime createdAfter);
+    
+    // Served by idx_ride_requests_status_route_created
+    List<RideRequest> findByStatusAndPickupKeyAndDropKeyAndCreatedAtAfter(RideRequest.RequestStatus status,
+                                                                          String pickupKey,
+                                                                          String dropKey,
+                                                                          LocalDateTime createdAfter);
+    
+    /**
+     * Fill the route keys of requests stored before they existed
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RideRequest r SET r.pickupKey = SUBSTRING(LOWER(TRIM(r.pickupLocation)), 1, 191), " +
+           "r.dropKey = SUBSTRING(LOWER(TRIM(r.dropLocation)), 1, 191) " +
+           "WHERE r.pickupKey IS NULL AND r.status = :status")
+    int backfillRouteKeys(@Param("status") RideRequest.RequestStatus status);
+    
+    /**
+     * Move a request from one status to another only if it is still in the first one, recording the ride.
+     * Returns 0 if another transaction changed it first.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE RideRequest r SET r.status = :toStatus, r.matchedRideId = :rideId " +
+           "WHERE r.id = :requestId AND r.status = :fromStatus")
+    int transition(@Param("requestId") Long requestId,
+                   @Param("fromStatus") RideRequest.RequestStatus fromStatus,
+                   @Param("toStatus") RideRequest.RequestStatus toStatus,
+                   @Param("rideId") Long rideId);
 }
@@ -2,10 +2,39 @@ package carpool.ride.repository;
 
 import carpool.ride.entity.RouteSegment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
 public interface RouteSegmentRepository extends JpaRepository<RouteSegment, Long> {
     List<RouteSegment> findByRideIdOrderBySequenceOrderAsc(Long rideId);
+    
+    /**
+     * Take a seat on each segment of the range that still has one, in a single statement.
+     * Returns the number of segments updated; fewer than the range length means some were full.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE RouteSegment s SET s.occupiedSeats = s.occupiedSeats + 1 " +
+           "WHERE s.ride.id = :rideId AND s.sequenceOrder BETWEEN :fromSequence AND :toSequence " +
+           "AND s.occupiedSeats < s.totalSeats")
+    int reserveSeat(@Param("rideId") Long rideId,
+                    @Param("fromSequence") int fromSequence,
+                    @Param("toSequence") int toSequence);
+    
+    /**
+     * Give back a seat on each occupied segment of the range
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE RouteSegment s SET s.occupiedSeats = s.occupiedSeats - 1 " +
+           "WHERE s.ride.id = :rideId AND s.sequenceOrder BETWEEN :fromSequence AND :toSequence " +
+           "AND s.occupiedSeats > 0")
+    int releaseSeat(@Param("rideId") Long rideId,
+                    @Param("fromSequence") int fromSequence,
+                    @Param("toSequence") int toSequence);
 }
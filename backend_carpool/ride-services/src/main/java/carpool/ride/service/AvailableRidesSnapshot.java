@@ -0,0 +1,358 @@
+package carpool.ride.service;
+
+import carpool.ride.dto.DeltaDTO;
+import carpool.ride.dto.RideEventDTO;
+import carpool.ride.entity.Ride;
+import carpool.ride.entity.RidePassenger;
+import carpool.ride.entity.RouteSegment;
+import carpool.ride.repository.RidePassengerRepository;
+import carpool.ride.repository.RideRepository;
+import carpool.ride.util.ChangeLog;
+import carpool.ride.util.SegmentLocator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * The rider "available rides" feed, served from an immutable in-memory snapshot.
+ *
+ * Every rider sees the same rides, so the list is built once: WAITING or IN_PROGRESS rides
+ * created in the last 24 hours, one per driver and route (the newest), newest first, with
+ * their active passengers and free seats. Each ride event (create, accept, drop, board,
+ * status change) reloads just that ride and publishes a new snapshot under a higher
+ * version; readers never lock and never see a half-applied change. Updates are applied
+ * in order on a single background thread after the change has committed.
+ *
+ * Which rides each version changed is kept in a bounded {@link ChangeLog}, so a client that
+ * already holds the list can fetch only what changed since the version it last saw.
+ */
+@Component
+public class AvailableRidesSnapshot {
+
+    private static final List<Ride.RideStatus> ACTIVE_RIDES = List.of(Ride.RideStatus.WAITING, Ride.RideStatus.IN_PROGRESS);
+    private static final List<RidePassenger.PassengerStatus> ACTIVE_PASSENGERS =
+        List.of(RidePassenger.PassengerStatus.MATCHED, RidePassenger.PassengerStatus.BOARDED);
+    private static final long WINDOW_HOURS = 24;
+    private static final int CHANGE_LOG_SIZE = 10000;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RidePassengerRepository passengerRepository;
+
+    @Autowired
+    private SeatAvailabilityIndex seatAvailability;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot;
+    private final ChangeLog changes = new ChangeLog(CHANGE_LOG_SIZE);
+
+    private final ExecutorService updates = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "available-rides");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Rides a rider can book, from the current snapshot. With the rider's pickup and drop,
+     * seats are counted on the segments of their trip only, otherwise along the whole route.
+     */
+    public Feed forRider(Double pickupLat, Double pickupLng, Double dropLat, Double dropLng) {
+        Snapshot current = current();
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(WINDOW_HOURS);
+
+        List<Map<String, Object>> rides = new ArrayList<>();
+        for (Entry entry : current.visible) {
+            Map<String, Object> view = view(entry, cutoff, pickupLat, pickupLng, dropLat, dropLng);
+            if (view != null) {
+                rides.add(view);
+            }
+        }
+        return new Feed(current.version, rides);
+    }
+
+    /**
+     * Rides added, changed or removed for a rider since the given version, or null if that
+     * version is too old (or from before a restart) and the full feed has to be reloaded
+     */
+    public DeltaDTO changesForRider(long since, Double pickupLat, Double pickupLng, Double dropLat, Double dropLng) {
+        Snapshot current = current();
+        Set<Long> changed = changes.changedSince(since, current.version);
+        if (changed == null) {
+            return null;
+        }
+
+        DeltaDTO delta = new DeltaDTO();
+        delta.setSince(since);
+        delta.setVersion(current.version);
+        delta.setCutoff(LocalDateTime.now().minusHours(WINDOW_HOURS));
+        for (Long rideId : changed) {
+            Entry entry = current.visibleById.get(rideId);
+            Map<String, Object> view = entry != null
+                ? view(entry, delta.getCutoff(), pickupLat, pickupLng, dropLat, dropLng)
+                : null;
+            if (view != null) {
+                delta.getChanged().add(view);
+            } else {
+                delta.getRemoved().add(rideId);
+            }
+        }
+        return delta;
+    }
+
+    public long getVersion() {
+        return current().version;
+    }
+
+    /**
+     * Build the first snapshot once the database is reachable
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        updates.execute(this::rebuild);
+    }
+
+    /**
+     * Re-read the ride an event is about, once its transaction has committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideEvent(RideEventDTO event) {
+        updates.execute(() -> {
+            if (snapshot == null) {
+                return; // the initial build reads it anyway
+            }
+            try {
+                refresh(event.getRideId());
+            } catch (Exception e) {
+                System.err.println(" Available rides refresh of ride " + event.getRideId() + " failed, rebuilding: " + e.getMessage());
+                rebuild();
+            }
+        });
+    }
+
+    // --- INTERNALS ---
+
+    /**
+     * A ride as one rider sees it, or null if it is not bookable for them. With the rider's
+     * pickup and drop, seats are counted on the segments of their trip only.
+     */
+    private Map<String, Object> view(Entry entry, LocalDateTime cutoff,
+                                     Double pickupLat, Double pickupLng, Double dropLat, Double dropLng) {
+        if (!entry.createdAt.isAfter(cutoff)) {
+            return null;
+        }
+
+        boolean riderLocated = pickupLat != null && pickupLng != null && dropLat != null && dropLng != null;
+        List<RouteSegment> segments = entry.ride.getSegments();
+        if (riderLocated && segments != null && !segments.isEmpty()) {
+            int[] range = SegmentLocator.of(segments).locate(pickupLat, pickupLng, dropLat, dropLng);
+            if (range[0] >= 0) {
+                // Live from the index; if it dropped the ride, whole-route seats are a safe lower bound
+                Integer live = seatAvailability.loadedAvailableSeats(entry.ride.getId(), range[0], range[1]);
+                int seats = live != null ? live : entry.availableSeats;
+                if (seats <= 0) {
+                    return null;
+                }
+                Map<String, Object> view = new LinkedHashMap<>(entry.view);
+                view.put("availableSeats", seats);
+                return view;
+            }
+        }
+        return entry.availableSeats > 0 ? entry.view : null;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // Not built yet (requests before startup finished): build it on the update thread and wait
+        try {
+            updates.submit(() -> {
+                if (snapshot == null) {
+                    rebuild();
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading available rides");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not load available rides: " + e.getCause().getMessage());
+        }
+        return snapshot;
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        List<Ride> rides = rideRepository.findActiveCreatedAfter(ACTIVE_RIDES, LocalDateTime.now().minusHours(WINDOW_HOURS));
+
+        // Active passengers of all these rides in one query, grouped per ride
+        Map<Long, List<RidePassenger>> passengers = rides.isEmpty()
+            ? Map.of()
+            : passengerRepository.findByRideIdInAndStatusIn(rides.stream().map(Ride::getId).toList(), ACTIVE_PASSENGERS)
+                .stream()
+                .collect(Collectors.groupingBy(RidePassenger::getRideId));
+
+        Map<Long, Entry> entries = new HashMap<>();
+        for (Ride ride : rides) {
+            entries.put(ride.getId(), entry(ride, passengers.getOrDefault(ride.getId(), List.of())));
+        }
+        publish(entries, null);
+        System.out.println("Available rides snapshot v" + snapshot.version + " built with " + entries.size() +
+                         " rides in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    private void refresh(Long rideId) {
+        Map<Long, Entry> entries = new HashMap<>(snapshot.entries);
+        Ride ride = rideRepository.findById(rideId).orElse(null);
+        if (ride == null || !ACTIVE_RIDES.contains(ride.getStatus()) || ride.getCreatedAt() == null) {
+            entries.remove(rideId);
+        } else {
+            entries.put(rideId, entry(ride, passengerRepository.findByRideIdInAndStatusIn(List.of(rideId), ACTIVE_PASSENGERS)));
+        }
+        publish(entries, rideId);
+    }
+
+    /**
+     * Swap in a new snapshot. changedRideId is the ride that was reloaded, null after a full rebuild.
+     */
+    private void publish(Map<Long, Entry> entries, Long changedRideId) {
+        // DEDUPLICATE: If same driver has multiple rides with same route, show only most recent.
+        // Rides with seats go first, so a full ride never hides a sibling that can still be booked;
+        // a full one only stays when it is the sole ride of its route (it may have seats on part of it).
+        List<Entry> newestFirst = new ArrayList<>(entries.values());
+        newestFirst.sort(Comparator.comparing((Entry entry) -> entry.createdAt).reversed());
+        Map<String, Entry> unique = new HashMap<>();
+        for (Entry entry : newestFirst) {
+            if (entry.availableSeats > 0) {
+                unique.putIfAbsent(entry.dedupKey, entry);
+            }
+        }
+        for (Entry entry : newestFirst) {
+            unique.putIfAbsent(entry.dedupKey, entry);
+        }
+
+        List<Entry> visible = new ArrayList<>();
+        for (Entry entry : newestFirst) {
+            if (unique.get(entry.dedupKey) == entry) {
+                visible.add(entry);
+            }
+        }
+        visible = List.copyOf(visible);
+
+        // Log before swapping, so readers of the new version always find its changes
+        long version;
+        if (changedRideId == null || snapshot == null) {
+            version = changes.reset();
+        } else {
+            // The reloaded ride, plus rides that appeared or disappeared behind it in deduplication
+            Set<Long> changed = new LinkedHashSet<>();
+            changed.add(changedRideId);
+            Set<Long> before = snapshot.visibleById.keySet();
+            Set<Long> after = new HashSet<>();
+            for (Entry entry : visible) {
+                after.add(entry.ride.getId());
+            }
+            for (Long rideId : before) {
+                if (!after.contains(rideId)) {
+                    changed.add(rideId);
+                }
+            }
+            for (Long rideId : after) {
+                if (!before.contains(rideId)) {
+                    changed.add(rideId);
+                }
+            }
+            version = changes.append(changed);
+        }
+        snapshot = new Snapshot(version, Collections.unmodifiableMap(entries), visible);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry entry(Ride ride, List<RidePassenger> passengers) {
+        // Populate the transient passengers list for frontend visibility (MATCHED first, then BOARDED)
+        List<RidePassenger> visible = new ArrayList<>(passengers);
+        visible.sort(Comparator.comparing(p -> p.getStatus() == RidePassenger.PassengerStatus.BOARDED));
+        ride.setPassengers(visible);
+
+        // Segmented rides: seats free along the whole route; legacy rides: from passenger records
+        boolean segmented = ride.getSegments() != null && !ride.getSegments().isEmpty();
+        ride.setAvailableSeats(segmented
+            ? seatAvailability.availableSeats(ride)
+            : ride.getTotalSeats() - passengers.size());
+
+        Map<String, Object> view = Collections.unmodifiableMap(objectMapper.convertValue(ride, LinkedHashMap.class));
+        return new Entry(ride, view);
+    }
+
+    /**
+     * One version of the feed
+     */
+    private static class Snapshot {
+        final long version;
+        final Map<Long, Entry> entries; // every active ride in the window
+        final List<Entry> visible;      // deduplicated, newest first
+        final Map<Long, Entry> visibleById;
+
+        Snapshot(long version, Map<Long, Entry> entries, List<Entry> visible) {
+            this.version = version;
+            this.entries = entries;
+            this.visible = visible;
+            this.visibleById = new HashMap<>();
+            for (Entry entry : visible) {
+                visibleById.put(entry.ride.getId(), entry);
+            }
+        }
+    }
+
+    private static class Entry {
+        final Ride ride;
+        final Map<String, Object> view; // the ride as serialized by the API
+        final LocalDateTime createdAt;
+        final String dedupKey;
+        final int availableSeats;
+
+        Entry(Ride ride, Map<String, Object> view) {
+            this.ride = ride;
+            this.view = view;
+            this.createdAt = ride.getCreatedAt();
+            this.dedupKey = ride.getDriverId() + "|" + ride.getPickupLocation().toLowerCase() + "|" +
+                            ride.getDropLocation().toLowerCase();
+            this.availableSeats = ride.getAvailableSeats();
+        }
+    }
+
+    /**
+     * Rides returned to one rider, and the snapshot version they come from
+     */
+    public static class Feed {
+        private final long version;
+        private final List<Map<String, Object>> rides;
+
+        Feed(long version, List<Map<String, Object>> rides) {
+            this.version = version;
+            this.rides = rides;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<Map<String, Object>> getRides() {
+            return rides;
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package carpool.ride.service;
 
 import carpool.ride.dto.DistanceCalculationDTO;
+import carpool.common.geocoding.LocalGeocoder;
+import carpool.common.routing.OfflineRoutingEngine;
+import carpool.common.routing.RouteEstimate;
+import carpool.common.upstream.UpstreamClient;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -25,14 +28,21 @@ public class LocationService {
     
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final OfflineRoutingEngine routingEngine;
+    private final LocalGeocoder localGeocoder;
+    private final UpstreamClient upstreamClient;
     
     // Use Nominatim for geocoding (more reliable than OpenRouteService geocoding)
     private static final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/search";
     private static final String USER_AGENT = "CarpoolApp/1.0";
     
-    public LocationService(RestTemplate restTemplate) {
+    public LocationService(RestTemplate restTemplate, OfflineRoutingEngine routingEngine,
+                           LocalGeocoder localGeocoder, UpstreamClient upstreamClient) {
         this.restTemplate = restTemplate;
         this.objectMapper = new ObjectMapper();
+        this.routingEngine = routingEngine;
+        this.localGeocoder = localGeocoder;
+        this.upstreamClient = upstreamClient;
     }
     
     /**
@@ -48,7 +58,15 @@ public class LocationService {
                 return createFailedResponse(origin, destination, "Unable to find locations. Try being more specific (e.g., 'Hinjewadi Phase 1, Pune, Maharashtra')");
             }
             
-            // Step 2: Calculate route using OpenRouteService
+            // Step 2: Calculate route, from the offline road graph when it covers both points
+            RouteEstimate offline = routingEngine.route(originCoords[1], originCoords[0], destCoords[1], destCoords[0]);
+            if (offline != null) {
+                return createSuccessResponse(origin, destination,
+                    Math.round(offline.getDistanceKm() * 100.0) / 100.0,
+                    Math.round(offline.getDurationSeconds() / 60.0));
+            }
+            
+            // Otherwise OpenRouteService
             String directionsResponse = getDirections(originCoords, destCoords);
             JsonNode root = objectMapper.readTree(directionsResponse);
             
@@ -64,17 +82,7 @@ public class LocationService {
                 double durationInSeconds = summary.get("duration").asDouble();
                 long durationInMinutes = Math.round(durationInSeconds / 60.0);
                 
-                // Create successful response
-                DistanceCalculationDTO dto = new DistanceCalculationDTO();
-                dto.setOrigin(origin);
-                dto.setDestination(destination);
-                dto.setDistanceInKm(distanceInKm);
-                dto.setDurationInMinutes(durationInMinutes);
-                dto.setSuccess(true);
-                
-                System.out.println("✅ Distance: " + distanceInKm + " km, Duration: " + durationInMinutes + " min");
-                
-                return dto;
+                return createSuccessResponse(origin, destination, distanceInKm, durationInMinutes);
             }
             
             return createFailedResponse(origin, destination, "No route found");
@@ -90,6 +98,12 @@ public class LocationService {
      * More reliable than OpenRouteService geocoding for Indian cities
      */
     private double[] geocodeLocationNominatim(String location) {
+        // Local gazetteer first; Nominatim only for names it does not know
+        double[] local = localGeocoder.geocode(location);
+        if (local != null) {
+            return local;
+        }
+        
         try {
             // Build URL with proper parameters
             String url = NOMINATIM_URL + 
@@ -103,14 +117,14 @@ public class LocationService {
             headers.set("User-Agent", USER_AGENT);
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(
+            String body = upstreamClient.call("nominatim", url, () -> restTemplate.exchange(
                 url,
                 HttpMethod.GET,
                 entity,
                 String.class
-            );
+            ).getBody());
             
-            JsonNode results = objectMapper.readTree(response.getBody());
+            JsonNode results = objectMapper.readTree(body);
             
             if (results.isArray() && results.size() > 0) {
                 JsonNode firstResult = results.get(0);
@@ -153,14 +167,12 @@ public class LocationService {
         
         HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
         
-        ResponseEntity<String> response = restTemplate.exchange(
+        return upstreamClient.call("ors", directionsUrl + requestBody, () -> restTemplate.exchange(
             directionsUrl,
             HttpMethod.POST,
             entity,
             String.class
-        );
-        
-        return response.getBody();
+        ).getBody());
     }
     
     /**
@@ -209,6 +221,20 @@ public class LocationService {
     /**
      * Create a failed response
      */
+    private DistanceCalculationDTO createSuccessResponse(String origin, String destination,
+                                                        double distanceInKm, long durationInMinutes) {
+        DistanceCalculationDTO dto = new DistanceCalculationDTO();
+        dto.setOrigin(origin);
+        dto.setDestination(destination);
+        dto.setDistanceInKm(distanceInKm);
+        dto.setDurationInMinutes(durationInMinutes);
+        dto.setSuccess(true);
+        
+        System.out.println("✅ Distance: " + distanceInKm + " km, Duration: " + durationInMinutes + " min");
+        
+        return dto;
+    }
+    
     private DistanceCalculationDTO createFailedResponse(String origin, String destination, String errorMessage) {
         DistanceCalculationDTO dto = new DistanceCalculationDTO();
         dto.setOrigin(origin);
@@ -0,0 +1,83 @@
+package carpool.ride.service;
+
+import carpool.ride.dto.RideRequestEventDTO;
+import carpool.ride.entity.RideRequest;
+import carpool.ride.util.ChangeLog;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Versions of ride requests, for drivers following the pending requests of their ride.
+ *
+ * A request is logged when it is created, linked to a ride, accepted or rejected. Inside a
+ * transaction the version is only taken after commit, so a client never holds a version
+ * whose change it could not read yet. Listeners then get the change as an event, in
+ * version order.
+ */
+@Component
+public class RequestChangeLog {
+
+    private static final int CHANGE_LOG_SIZE = 10000;
+
+    private final ChangeLog changes = new ChangeLog(CHANGE_LOG_SIZE);
+    private final List<Consumer<RideRequestEventDTO>> listeners = new CopyOnWriteArrayList<>();
+
+    public void changed(RideRequest request, RideRequestEventDTO.EventType type) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(request, type);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(request, type);
+            }
+        });
+    }
+
+    /**
+     * Get every committed change from now on. Listeners run on the committing thread and must not block.
+     */
+    public void subscribe(Consumer<RideRequestEventDTO> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Forget all versions, e.g. after requests were deleted in bulk
+     */
+    public void reset() {
+        changes.reset();
+    }
+
+    public long version() {
+        return changes.version();
+    }
+
+    /**
+     * Requests changed after since, up to upTo; null if the client has to reload the full list
+     */
+    public Set<Long> changedSince(long since, long upTo) {
+        return changes.changedSince(since, upTo);
+    }
+
+    // Versions and listener calls in the same order
+    private synchronized void record(RideRequest request, RideRequestEventDTO.EventType type) {
+        RideRequestEventDTO event = new RideRequestEventDTO();
+        event.setType(type);
+        event.setVersion(changes.append(List.of(request.getId())));
+        event.setRequest(request);
+        for (Consumer<RideRequestEventDTO> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                System.err.println(" Request change listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
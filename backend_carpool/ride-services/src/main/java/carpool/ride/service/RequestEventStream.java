@@ -0,0 +1,265 @@
+package carpool.ride.service;
+
+import carpool.ride.dto.DeltaDTO;
+import carpool.ride.dto.RideRequestEventDTO;
+import carpool.ride.entity.Ride;
+import carpool.ride.entity.RideRequest;
+import carpool.ride.repository.RideRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Server-Sent Events of a ride's incoming requests, so drivers no longer poll for them.
+ *
+ * A driver connects once per ride and first gets a "sync" event: the full pending list, or
+ * when resuming with Last-Event-ID only what changed since that id (as the since= delta of
+ * GET /{rideId}/requests). After that every committed request change the ride would list is
+ * pushed as request-created, request-updated, request-accepted or request-rejected. Event
+ * ids are versions of the {@link RequestChangeLog}. Idle connections get a heartbeat comment
+ * so proxies keep them open and dead clients are noticed.
+ *
+ * The sync is loaded without holding the ride's lock. A subscriber is registered first and
+ * live events are held back for it until its sync is sent, then only the newer ones follow.
+ */
+@Component
+public class RequestEventStream {
+
+    @Autowired
+    private RequestChangeLog requestChanges;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Value("${request-stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${request-stream.retry-ms:3000}")
+    private long retryMs;
+
+    private final Map<Long, RideStream> streams = new ConcurrentHashMap<>();
+
+    // Sends happen off the committing thread, one event at a time so they stay in version order
+    private final ExecutorService dispatch = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "request-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void listen() {
+        requestChanges.subscribe(event -> dispatch.execute(() -> publish(event)));
+    }
+
+    /**
+     * Open a stream of a ride's requests, resuming after lastEventId if given
+     */
+    public SseEmitter subscribe(Long rideId, Long lastEventId) {
+        Ride ride = rideRepository.findById(rideId)
+            .orElseThrow(() -> new RuntimeException("Ride not found with id: " + rideId));
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        RideStream stream = register(ride, subscriber);
+
+        // Queried outside the stream lock; live events meanwhile wait in the subscriber's backlog
+        Sync sync;
+        try {
+            sync = loadSync(rideId, lastEventId);
+        } catch (Exception e) {
+            remove(stream, emitter);
+            emitter.completeWithError(e);
+            return emitter;
+        }
+
+        synchronized (stream) {
+            try {
+                emitter.send(SseEmitter.event().reconnectTime(retryMs));
+                emitter.send(SseEmitter.event().id(String.valueOf(sync.version())).name("sync").data(sync.data()));
+                // Changes up to the sync version are in it already
+                for (RideRequestEventDTO event : subscriber.backlog) {
+                    if (event.getVersion() > sync.version()) {
+                        emitter.send(message(event).get());
+                    }
+                }
+                subscriber.backlog = null;
+            } catch (Exception e) {
+                remove(stream, emitter);
+                emitter.completeWithError(e);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Keep idle streams open and drop clients that went away
+     */
+    @Scheduled(fixedDelayString = "${request-stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        dispatch.execute(() -> {
+            for (RideStream stream : streams.values()) {
+                send(stream, null, () -> SseEmitter.event().comment("heartbeat"));
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        int subscribers = 0;
+        for (RideStream stream : streams.values()) {
+            subscribers += stream.subscribers.size();
+        }
+        return Map.of("rides", streams.size(), "subscribers", subscribers, "version", requestChanges.version());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatch.shutdownNow();
+        for (RideStream stream : streams.values()) {
+            stream.subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        }
+    }
+
+    // --- INTERNALS ---
+
+    /**
+     * Add a subscriber to its ride's stream, still syncing: live events are kept in its backlog
+     */
+    private RideStream register(Ride ride, Subscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter;
+        while (true) {
+            RideStream stream = streams.computeIfAbsent(ride.getId(), id -> new RideStream(ride));
+            synchronized (stream) {
+                if (stream.closed) {
+                    continue; // removed meanwhile by its last subscriber leaving, take a fresh one
+                }
+                emitter.onCompletion(() -> remove(stream, emitter));
+                emitter.onTimeout(emitter::complete);
+                emitter.onError(e -> remove(stream, emitter));
+                stream.subscribers.add(subscriber);
+                return stream;
+            }
+        }
+    }
+
+    private Sync loadSync(Long rideId, Long lastEventId) {
+        DeltaDTO delta = lastEventId != null ? rideService.getPendingRequestChanges(rideId, lastEventId) : null;
+        if (delta != null) {
+            return new Sync(delta.getVersion(), delta);
+        }
+
+        // Version read before the list, so changes made meanwhile are sent again as live events
+        long version = requestChanges.version();
+        List<RideRequest> requests = rideService.getPendingRequestsForRide(rideId);
+        return new Sync(version, Map.of(
+            "rideId", rideId,
+            "requests", requests,
+            "count", requests.size(),
+            "version", version,
+            "full", true
+        ));
+    }
+
+    private void publish(RideRequestEventDTO event) {
+        Supplier<SseEmitter.SseEventBuilder> message = message(event);
+        for (RideStream stream : streams.values()) {
+            if (stream.follows(event.getRequest())) {
+                send(stream, event, message);
+            }
+        }
+    }
+
+    // A builder is spent once sent, so each subscriber gets its own
+    private static Supplier<SseEmitter.SseEventBuilder> message(RideRequestEventDTO event) {
+        return () -> SseEmitter.event()
+            .id(String.valueOf(event.getVersion()))
+            .name("request-" + event.getType().name().toLowerCase(Locale.ROOT))
+            .data(event.getRequest());
+    }
+
+    /**
+     * Send to every synced subscriber of a ride; a request event is held back for those still syncing
+     */
+    private void send(RideStream stream, RideRequestEventDTO event, Supplier<SseEmitter.SseEventBuilder> message) {
+        synchronized (stream) {
+            for (Subscriber subscriber : stream.subscribers) {
+                if (subscriber.backlog != null) {
+                    if (event != null) {
+                        subscriber.backlog.add(event);
+                    }
+                    continue;
+                }
+                try {
+                    subscriber.emitter.send(message.get());
+                } catch (Exception e) {
+                    remove(stream, subscriber.emitter);
+                    subscriber.emitter.completeWithError(e);
+                }
+            }
+        }
+    }
+
+    private void remove(RideStream stream, SseEmitter emitter) {
+        synchronized (stream) {
+            stream.subscribers.removeIf(subscriber -> subscriber.emitter == emitter);
+            if (stream.subscribers.isEmpty() && !stream.closed) {
+                stream.closed = true;
+                streams.remove(stream.rideId, stream);
+            }
+        }
+    }
+
+    /**
+     * Subscribers of one ride, and what decides which requests it lists
+     */
+    private static class RideStream {
+        final Long rideId;
+        final String pickupKey;
+        final String dropKey;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        boolean closed;
+
+        RideStream(Ride ride) {
+            this.rideId = ride.getId();
+            this.pickupKey = RideRequest.routeKey(ride.getPickupLocation());
+            this.dropKey = RideRequest.routeKey(ride.getDropLocation());
+        }
+
+        // Same rule as getPendingRequestsForRide: linked to this ride, or on the same route
+        boolean follows(RideRequest request) {
+            return rideId.equals(request.getMatchedRideId())
+                || (Objects.equals(pickupKey, request.getPickupKey()) && Objects.equals(dropKey, request.getDropKey()));
+        }
+    }
+
+    /**
+     * One open stream. Guarded by its RideStream.
+     */
+    private static class Subscriber {
+        final SseEmitter emitter;
+        List<RideRequestEventDTO> backlog = new ArrayList<>(); // null once the sync is sent
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * First event of a stream: the version it is current as of, and its payload
+     */
+    private record Sync(long version, Object data) {
+    }
+}
@@ -0,0 +1,101 @@
+package carpool.ride.service;
+
+import carpool.ride.dto.RideEventDTO;
+import carpool.ride.entity.Ride;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes ride lifecycle and seat changes.
+ *
+ * Events go through the Spring application event bus first, so in-process listeners see
+ * them and delivery waits for the surrounding transaction to commit. They are then pushed
+ * to the configured subscribers (matching-service) over HTTP from a single background
+ * thread, which keeps them in publish order.
+ */
+@Component
+public class RideEventPublisher {
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ride-events.subscribers:http://localhost:8083/api/matching/events/rides}")
+    private List<String> subscribers;
+
+    // Seeded from the clock so sequences keep increasing across restarts
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ride-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public void rideCreated(Ride ride) {
+        publish(RideEventDTO.EventType.CREATED, ride.getId(), ride);
+    }
+
+    public void rideUpdated(Ride ride) {
+        publish(RideEventDTO.EventType.UPDATED, ride.getId(), ride);
+    }
+
+    public void rideRemoved(Long rideId) {
+        publish(RideEventDTO.EventType.REMOVED, rideId, null);
+    }
+
+    /**
+     * Sequence of the latest committed event. Snapshots taken after reading it are at least this fresh.
+     */
+    public long currentSequence() {
+        return sequence.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void publish(RideEventDTO.EventType type, Long rideId, Ride ride) {
+        RideEventDTO event = new RideEventDTO();
+        event.setType(type);
+        event.setRideId(rideId);
+        // Snapshot now: the entity may still change before the event is delivered
+        event.setRide(ride != null ? objectMapper.convertValue(ride, Map.class) : null);
+
+        applicationEventPublisher.publishEvent(event);
+    }
+
+    /**
+     * Forward to subscribers once the change is committed (or right away outside a transaction).
+     * The sequence is only taken now, so a snapshot never carries the sequence of a change it
+     * could not read yet.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void deliver(RideEventDTO event) {
+        // Synchronized: sequences are queued for delivery in the order they are taken
+        event.setSequence(sequence.incrementAndGet());
+        delivery.execute(() -> {
+            for (String subscriber : subscribers) {
+                try {
+                    restTemplate.postForObject(subscriber, event, Void.class);
+                } catch (Exception e) {
+                    System.err.println(" Ride event " + event.getType() + " #" + event.getRideId() +
+                                       " not delivered to " + subscriber + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+}
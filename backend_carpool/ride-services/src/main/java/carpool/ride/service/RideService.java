@@ -2,24 +2,38 @@ package carpool.ride.service;
 
 import carpool.ride.dto.CreateRideDTO;
 import carpool.ride.dto.CreateRideRequestDTO;
+import carpool.ride.dto.DeltaDTO;
+import carpool.ride.dto.RideRequestEventDTO;
 import carpool.ride.entity.Ride;
 import carpool.ride.entity.RidePassenger;
 import carpool.ride.entity.RideRequest;
 import carpool.ride.repository.RideRepository;
 import carpool.ride.repository.RidePassengerRepository;
 import carpool.ride.repository.RideRequestRepository;
+import carpool.ride.repository.RouteSegmentRepository;
 import carpool.ride.util.MapDistanceUtil;
+import carpool.ride.util.SegmentLocator;
+import carpool.common.routing.RouteEstimate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import carpool.ride.entity.RouteSegment;
 import carpool.ride.dto.StopDTO;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class RideService {
@@ -33,12 +47,52 @@ public class RideService {
     @Autowired
     private RidePassengerRepository passengerRepository;
     
+    @Autowired
+    private RouteSegmentRepository segmentRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private SeatAvailabilityIndex seatAvailability;
+    
     @Autowired
     private RestTemplate restTemplate;
     
     @Autowired
     private MapDistanceUtil mapDistanceUtil;
     
+    @Autowired
+    private RideEventPublisher rideEventPublisher;
+    
+    @Autowired
+    private RequestChangeLog requestChanges;
+    
+    // Assumed for a leg whose road distance could not be calculated in time
+    private static final double FALLBACK_LEG_KM = 10.0;
+    private static final double FALLBACK_SPEED_KMH = 30.0;
+    
+    // Drivers only see requests created this recently
+    private static final long PENDING_REQUEST_HOURS = 2;
+    
+    // Attempts at accepting a request when its transaction loses a lock race
+    private static final int MAX_ACCEPT_ATTEMPTS = 3;
+    
+    /**
+     * Pending requests saved before route keys existed are otherwise invisible to the route lookup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillRequestRouteKeys() {
+        try {
+            int updated = requestRepository.backfillRouteKeys(RideRequest.RequestStatus.PENDING);
+            if (updated > 0) {
+                System.out.println("Backfilled route keys of " + updated + " pending ride requests");
+            }
+        } catch (Exception e) {
+            System.err.println(" Route key backfill failed: " + e.getMessage());
+        }
+    }
+    
     /**
      * Driver creates a ride
      */
@@ -59,6 +113,8 @@ public class RideService {
                 System.out.println(" Found empty stale ride " + existing.getId() + ". Auto-cancelling it to allow new ride.");
                 existing.setStatus(Ride.RideStatus.CANCELLED);
                 rideRepository.save(existing);
+                seatAvailability.evict(existing.getId());
+                rideEventPublisher.rideUpdated(existing);
             } else {
                 System.out.println("Driver " + dto.getDriverId() + " has active ride " + existing.getId() + " with passengers. Returning existing.");
                 return existing;
@@ -107,7 +163,19 @@ public class RideService {
         end.setLongitude(dto.getDropLongitude());
         allPoints.add(end);
         
+        // All legs from one routing request instead of a distance and a duration call per leg
+        List<double[]> coordinates = new ArrayList<>();
+        for (StopDTO point : allPoints) {
+            if (point.getLatitude() != null && point.getLongitude() != null) {
+                coordinates.add(new double[]{point.getLatitude(), point.getLongitude()});
+            }
+        }
+        List<RouteEstimate> legs = coordinates.size() == allPoints.size()
+            ? mapDistanceUtil.calculateLegs(coordinates)
+            : Collections.nCopies(allPoints.size() - 1, null);
+        
         double totalDistance = 0.0;
+        double totalDurationSeconds = 0.0;
         
         for (int i = 0; i < allPoints.size() - 1; i++) {
             StopDTO from = allPoints.get(i);
@@ -127,13 +195,17 @@ public class RideService {
             seg.setOccupiedSeats(0);
             seg.setBaseRatePerKm(10.0); // Default, can be configurable
             
-            try {
-                double d = mapDistanceUtil.calculateDistance(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+            RouteEstimate leg = legs.get(i);
+            if (leg != null) {
+                double d = Math.round(leg.getDistanceKm() * 100.0) / 100.0;
                 seg.setDistanceInKm(d);
                 totalDistance += d;
-            } catch (Exception e) {
-                seg.setDistanceInKm(10.0); // Fallback
-                totalDistance += 10.0;
+                totalDurationSeconds += leg.getDurationSeconds();
+            } else {
+                // No answer for this leg in time
+                seg.setDistanceInKm(FALLBACK_LEG_KM); // Fallback
+                totalDistance += FALLBACK_LEG_KM;
+                totalDurationSeconds += FALLBACK_LEG_KM / FALLBACK_SPEED_KMH * 3600.0;
             }
             
             segments.add(seg);
@@ -142,18 +214,12 @@ public class RideService {
         ride.setSegments(segments);
         ride.setDistanceInKm(totalDistance);
         
-        // Estimate total duration
-        try {
-             long duration = mapDistanceUtil.calculateDuration(
-                dto.getPickupLatitude(), dto.getPickupLongitude(),
-                dto.getDropLatitude(), dto.getDropLongitude()
-            );
-            ride.setEstimatedDurationMinutes(duration);
-        } catch (Exception e) {
-            ride.setEstimatedDurationMinutes(60L); // Default 1 hour
-        }
+        // Total duration is the sum of the legs, stops included
+        ride.setEstimatedDurationMinutes(Math.round(totalDurationSeconds / 60.0));
         
-        return rideRepository.save(ride);
+        Ride savedRide = rideRepository.save(ride);
+        rideEventPublisher.rideCreated(savedRide);
+        return savedRide;
     }
     
     /**
@@ -186,6 +252,7 @@ public class RideService {
         request.setCreatedAt(LocalDateTime.now());
         
         RideRequest savedRequest = requestRepository.save(request);
+        requestChanges.changed(savedRequest, RideRequestEventDTO.EventType.CREATED);
         
         // Trigger matching
         callMatchingService(savedRequest);
@@ -200,7 +267,9 @@ public class RideService {
         RideRequest request = requestRepository.findById(requestId)
             .orElseThrow(() -> new RuntimeException("Request not found: " + requestId));
         request.setMatchedRideId(rideId);
-        return requestRepository.save(request);
+        RideRequest saved = requestRepository.save(request);
+        requestChanges.changed(saved, RideRequestEventDTO.EventType.UPDATED);
+        return saved;
     }
     
     /**
@@ -234,37 +303,23 @@ public class RideService {
         System.out.println("Ride drop: " + ride.getDropLocation());
         
         // FILTER: Only show requests created in the last 2 hours (recent requests only, no old stale requests)
-        LocalDateTime requestCutoffTime = LocalDateTime.now().minusHours(2);
+        LocalDateTime requestCutoffTime = LocalDateTime.now().minusHours(PENDING_REQUEST_HOURS);
         System.out.println("Filtering requests created after: " + requestCutoffTime);
         
-        // Get all requests, prioritizing those specifically matched to this ride
-        List<RideRequest> allRequests = requestRepository.findAll();
-        System.out.println("Total requests in DB: " + allRequests.size());
-        
-        // First, get requests that are MATCHED to this specific ride AND are recent
-        List<RideRequest> matchedToThisRide = allRequests.stream()
-            .filter(req -> req.getMatchedRideId() != null && 
-                          req.getMatchedRideId().equals(rideId) &&
-                          req.getStatus() == RideRequest.RequestStatus.PENDING &&  // ✅ ONLY PENDING 
-                          req.getCreatedAt() != null &&
-                          req.getCreatedAt().isAfter(requestCutoffTime))  // Only recent requests
-            .toList();
+        // First, get requests that are MATCHED to this specific ride AND are recent (indexed lookup)
+        List<RideRequest> matchedToThisRide = requestRepository.findByStatusAndMatchedRideIdAndCreatedAtAfter(
+            RideRequest.RequestStatus.PENDING, rideId, requestCutoffTime);  // ✅ ONLY PENDING
         
         System.out.println("Matched to this ride (recent & pending): " + matchedToThisRide.size());
         
         // Match by Route (Fallback for when MatchingService matches by location but hasn't linked ID yet)
-        List<RideRequest> pendingByRoute = allRequests.stream()
-            .filter(req -> {
-                boolean isPending = req.getStatus() == RideRequest.RequestStatus.PENDING;
-                boolean isRecent = req.getCreatedAt() != null && req.getCreatedAt().isAfter(requestCutoffTime);
-                boolean notAlreadyMatched = !matchedToThisRide.contains(req); // Avoid duplicates
-                
-                // Route check
-                boolean pickupMatch = req.getPickupLocation() != null && req.getPickupLocation().equalsIgnoreCase(ride.getPickupLocation());
-                boolean dropMatch = req.getDropLocation() != null && req.getDropLocation().equalsIgnoreCase(ride.getDropLocation());
-
-                return isPending && isRecent && notAlreadyMatched && pickupMatch && dropMatch;
-            })
+        List<RideRequest> pendingByRoute = requestRepository.findByStatusAndPickupKeyAndDropKeyAndCreatedAtAfter(
+                RideRequest.RequestStatus.PENDING,
+                RideRequest.routeKey(ride.getPickupLocation()),
+                RideRequest.routeKey(ride.getDropLocation()),
+                requestCutoffTime)
+            .stream()
+            .filter(req -> !rideId.equals(req.getMatchedRideId())) // Avoid duplicates
             .toList();
         
         System.out.println("Pending by route (recent): " + pendingByRoute.size());
@@ -278,13 +333,83 @@ public class RideService {
     }
     
     /**
-     * Driver accepts a ride request - converts RideRequest to RidePassenger
+     * Pending requests of a ride added, changed or removed since a version of the request log.
+     * Returns null if that version is no longer covered and the full list has to be reloaded.
      */
+    public DeltaDTO getPendingRequestChanges(Long rideId, long since) {
+        long version = requestChanges.version();
+        Set<Long> changed = requestChanges.changedSince(since, version);
+        if (changed == null) {
+            return null;
+        }
+        
+        DeltaDTO delta = new DeltaDTO();
+        delta.setSince(since);
+        delta.setVersion(version);
+        delta.setCutoff(LocalDateTime.now().minusHours(PENDING_REQUEST_HOURS));
+        if (changed.isEmpty()) {
+            return delta; // Nothing changed: no database work at all
+        }
+        
+        // The log covers every ride: keep the requests this ride follows, same rule as
+        // RequestEventStream (linked to this ride, or on the same route)
+        Ride ride = rideRepository.findById(rideId)
+            .orElseThrow(() -> new RuntimeException("Ride not found with id: " + rideId));
+        String pickupKey = RideRequest.routeKey(ride.getPickupLocation());
+        String dropKey = RideRequest.routeKey(ride.getDropLocation());
+        Set<Long> followed = new HashSet<>(changed);
+        for (RideRequest request : requestRepository.findAllById(changed)) {
+            boolean follows = rideId.equals(request.getMatchedRideId())
+                || (Objects.equals(pickupKey, request.getPickupKey())
+                    && Objects.equals(dropKey, request.getDropKey()));
+            if (!follows) {
+                followed.remove(request.getId());
+            }
+        }
+        // Ids left without a row were deleted; removing an id the client never had is harmless
+        if (followed.isEmpty()) {
+            return delta;
+        }
+        
+        Map<Long, RideRequest> pending = new HashMap<>();
+        for (RideRequest request : getPendingRequestsForRide(rideId)) {
+            pending.put(request.getId(), request);
+        }
+        for (Long requestId : followed) {
+            if (pending.containsKey(requestId)) {
+                delta.getChanged().add(pending.get(requestId));
+            } else {
+                delta.getRemoved().add(requestId);
+            }
+        }
+        return delta;
+    }
+    
     /**
-     * Driver accepts a ride request - converts RideRequest to RidePassenger
+     * Driver accepts a ride request - converts RideRequest to RidePassenger.
+     * Seats are reserved by conditional updates, so concurrent accepts cannot overbook a segment;
+     * a transaction that loses a lock race (deadlock, lock timeout) is retried a few times.
      */
-    @org.springframework.transaction.annotation.Transactional
     public RidePassenger acceptRideRequest(Long requestId, Long activeRideId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> reserveAndAccept(requestId, activeRideId));
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= MAX_ACCEPT_ATTEMPTS) {
+                    throw new RuntimeException("Could not reserve seats for request " + requestId + ", please retry", e);
+                }
+                System.out.println(" Accept of request " + requestId + " hit a lock conflict, retry " + attempt);
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50) * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while accepting request " + requestId);
+                }
+            }
+        }
+    }
+    
+    private RidePassenger reserveAndAccept(Long requestId, Long activeRideId) {
         System.out.println("\n===  ACCEPT RIDE REQUEST (SEGMENT BASED) ===");
         
         RideRequest request = requestRepository.findById(requestId)
@@ -306,6 +431,7 @@ public class RideService {
         if (ride == null) {
              throw new RuntimeException("Ride not found for request " + requestId);
         }
+        Long rideId = ride.getId();
 
         // 2. Identify Segments
         int[] indices = findSegmentRange(ride, 
@@ -325,37 +451,54 @@ public class RideService {
         }
         
         List<RouteSegment> rideSegments = ride.getSegments();
-        List<RouteSegment> requiredSegments = new java.util.ArrayList<>();
         
-        // 3. Check Capacity & Lock
+        // 3. Claim the request: only one accept can move it out of PENDING
+        int claimed = requestRepository.transition(requestId,
+            RideRequest.RequestStatus.PENDING, RideRequest.RequestStatus.MATCHED, rideId);
+        if (claimed == 0) {
+            throw new RuntimeException("Request is not PENDING");
+        }
+        request.setStatus(RideRequest.RequestStatus.MATCHED); // as written by the update, for the event
+        request.setMatchedRideId(rideId);
+        requestChanges.changed(request, RideRequestEventDTO.EventType.ACCEPTED);
+        
+        // 4. Reserve seats: in the availability index first (no database work when full),
+        //    then one conditional UPDATE over the range, all or nothing
         if (rideSegments != null && !rideSegments.isEmpty()) {
-            for (int i = startIdx; i <= endIdx; i++) {
-                RouteSegment seg = rideSegments.get(i);
-                if (seg.getOccupiedSeats() >= seg.getTotalSeats()) {
-                    throw new RuntimeException("Segment " + i + " is FULL");
-                }
-                requiredSegments.add(seg);
+            if (!seatAvailability.reserve(ride, startIdx, endIdx)) {
+                throw new RuntimeException("Segments " + startIdx + " to " + endIdx + " are FULL");
             }
-            
-            // All good - Increment Seats
-            for (RouteSegment seg : requiredSegments) {
-                seg.setOccupiedSeats(seg.getOccupiedSeats() + 1);
+            int fromSequence = rideSegments.get(startIdx).getSequenceOrder();
+            int toSequence = rideSegments.get(endIdx).getSequenceOrder();
+            int reserved = segmentRepository.reserveSeat(rideId, fromSequence, toSequence);
+            if (reserved < endIdx - startIdx + 1) {
+                // The index was behind the database: reload it, and roll back the segments
+                // that were updated and the request claim
+                seatAvailability.evict(rideId);
+                throw new RuntimeException("Segments " + startIdx + " to " + endIdx + " are FULL");
             }
         } else {
              // Fallback for legacy rides without segments
-            if (ride.getAvailableSeats() <= 0) throw new RuntimeException("Ride full");
-            ride.setAvailableSeats(ride.getAvailableSeats() - 1);
+            if (rideRepository.takeAvailableSeat(rideId) == 0) throw new RuntimeException("Ride full");
         }
         
-        rideRepository.save(ride); 
+        // Reload: the updates above bypass the loaded entities
+        ride = rideRepository.findById(rideId)
+            .orElseThrow(() -> new RuntimeException("Ride not found for request " + requestId));
+        syncAvailableSeats(ride);
+        rideEventPublisher.rideUpdated(ride);
         
-        // 4. Create Passenger
+        // 5. Create Passenger
         RidePassenger passenger = new RidePassenger();
-        passenger.setRideId(ride.getId());
+        passenger.setRideId(rideId);
         passenger.setRiderId(request.getRiderId());
         passenger.setRiderName(request.getRiderName());
         passenger.setBoardingLocation(request.getPickupLocation());
+        passenger.setBoardingLatitude(request.getPickupLatitude());
+        passenger.setBoardingLongitude(request.getPickupLongitude());
         passenger.setDropLocation(request.getDropLocation());
+        passenger.setDropLatitude(request.getDropLatitude());
+        passenger.setDropLongitude(request.getDropLongitude());
         passenger.setStatus(RidePassenger.PassengerStatus.MATCHED);
         passenger.setJoinedAt(LocalDateTime.now());
         
@@ -366,16 +509,12 @@ public class RideService {
         if (estimatedFare == 0) estimatedFare = 50.0; // fallback
         
         passenger.setFareAmount(estimatedFare);
-        passenger.setDistanceInKm(mapDistanceUtil.calculateDistance(
-             request.getPickupLatitude(), request.getPickupLongitude(),
-             request.getDropLatitude(), request.getDropLongitude()));
+        // The rider's own pickup -> drop distance, as sent with the request, so accepting needs no
+        // routing call; without it dropPassenger computes it from the coordinates above
+        passenger.setDistanceInKm(request.getDistance());
 
         RidePassenger savedPassenger = passengerRepository.save(passenger);
         
-        request.setMatchedRideId(ride.getId());
-        request.setStatus(RideRequest.RequestStatus.MATCHED);
-        requestRepository.save(request);
-        
         System.out.println("Accepted! Passenger " + savedPassenger.getId());
         return savedPassenger;
     }
@@ -390,12 +529,14 @@ public class RideService {
         // Change status to something other than PENDING
         // Could use COMPLETED to mark as no longer available
         request.setStatus(RideRequest.RequestStatus.COMPLETED);      
-        requestRepository.save(request);
+        RideRequest rejected = requestRepository.save(request);
+        requestChanges.changed(rejected, RideRequestEventDTO.EventType.REJECTED);
     }
     
     /**
      * Add passenger to ride (called by matching service)
      */
+    @org.springframework.transaction.annotation.Transactional
     public RidePassenger addPassengerToRide(Long rideId, Long riderId, 
                                             String pickupLocation, Double pickupLat, Double pickupLng,
                                             String dropLocation, Double dropLat, Double dropLng) {
@@ -471,9 +612,39 @@ public class RideService {
             passenger.setFareAmount(50.0);
         }
         
-        // Update available seats
-        ride.setAvailableSeats(ride.getAvailableSeats() - 1);
-        rideRepository.save(ride);
+        // Reserve the seat on the segments the passenger rides, the same way an accepted request does;
+        // the ride-level counter is derived from the segments and would be overwritten otherwise
+        List<RouteSegment> rideSegments = ride.getSegments();
+        if (rideSegments != null && !rideSegments.isEmpty()) {
+            int startIdx = 0;
+            int endIdx = rideSegments.size() - 1;
+            if (pickupLat != null && pickupLng != null && dropLat != null && dropLng != null) {
+                int[] indices = findSegmentRange(ride, pickupLat, pickupLng, dropLat, dropLng);
+                if (indices[0] != -1 && indices[1] != -1 && indices[0] <= indices[1]) {
+                    startIdx = indices[0];
+                    endIdx = indices[1];
+                }
+            }
+            if (!seatAvailability.reserve(ride, startIdx, endIdx)) {
+                throw new RuntimeException("No seats available");
+            }
+            int reserved = segmentRepository.reserveSeat(rideId,
+                rideSegments.get(startIdx).getSequenceOrder(), rideSegments.get(endIdx).getSequenceOrder());
+            if (reserved < endIdx - startIdx + 1) {
+                // The index was behind the database: reload it and roll back the partial update
+                seatAvailability.evict(rideId);
+                throw new RuntimeException("No seats available");
+            }
+            passenger.setStartSegmentSequence(startIdx);
+            passenger.setEndSegmentSequence(endIdx);
+        } else if (rideRepository.takeAvailableSeat(rideId) == 0) {
+            // Legacy rides without segments: conditional so concurrent joins cannot go below zero
+            throw new RuntimeException("No seats available");
+        }
+        ride = rideRepository.findById(rideId)
+            .orElseThrow(() -> new RuntimeException("Ride not found"));
+        syncAvailableSeats(ride);
+        rideEventPublisher.rideUpdated(ride);
 
         
         return passengerRepository.save(passenger);
@@ -489,7 +660,10 @@ public class RideService {
         passenger.setStatus(RidePassenger.PassengerStatus.BOARDED);
         passenger.setBoardedAt(LocalDateTime.now());
         
-        return passengerRepository.save(passenger);
+        RidePassenger saved = passengerRepository.save(passenger);
+        // Passenger lists shown with the ride changed
+        rideRepository.findById(saved.getRideId()).ifPresent(rideEventPublisher::rideUpdated);
+        return saved;
     }
     
     /**
@@ -501,6 +675,12 @@ public class RideService {
         
         RidePassenger passenger = passengerRepository.findById(passengerId)
             .orElseThrow(() -> new RuntimeException("Passenger not found: " + passengerId));
+        
+        // Only a passenger still holding a seat can give it back; a second drop would free someone else's
+        if (passenger.getStatus() != RidePassenger.PassengerStatus.MATCHED &&
+            passenger.getStatus() != RidePassenger.PassengerStatus.BOARDED) {
+            throw new RuntimeException("Passenger " + passengerId + " is already " + passenger.getStatus());
+        }
             
         Ride ride = rideRepository.findById(passenger.getRideId())
             .orElseThrow(() -> new RuntimeException("Ride not found"));
@@ -508,29 +688,30 @@ public class RideService {
         List<RouteSegment> segments = ride.getSegments();
         double finalFare = 0.0;
         
-        int start = passenger.getStartSegmentSequence() != null ? passenger.getStartSegmentSequence() : 0;
-        int end = passenger.getEndSegmentSequence() != null ? passenger.getEndSegmentSequence() : 0;
-        
         if (segments != null && !segments.isEmpty()) {
-            System.out.println("   Releasing seats for segments " + start + " to " + end);
-            for (int i = start; i <= end; i++) {
-                if (i < segments.size()) {
-                    RouteSegment seg = segments.get(i);
-                    // Free up seat
-                    seg.setOccupiedSeats(Math.max(0, seg.getOccupiedSeats() - 1));
+            Integer start = passenger.getStartSegmentSequence();
+            Integer end = passenger.getEndSegmentSequence();
+            if (start == null || end == null) {
+                // Joined without a segment range, so no segment seat was taken for it
+                System.err.println(" Passenger " + passengerId + " holds no segment range, no seats released");
+            } else if (start < segments.size()) {
+                System.out.println("   Releasing seats for segments " + start + " to " + end);
+                // Free up seat, as a decrement in the database so concurrent accepts are not overwritten
+                int last = Math.min(end, segments.size() - 1);
+                if (seatAvailability.release(ride, start, last)) {
+                    segmentRepository.releaseSeat(ride.getId(),
+                        segments.get(start).getSequenceOrder(), segments.get(last).getSequenceOrder());
                 }
             }
-            
-            // FIX: Update global available seats to unblock search visibility
-            if (ride.getAvailableSeats() < ride.getTotalSeats()) {
-                ride.setAvailableSeats(ride.getAvailableSeats() + 1);
-            }
         } else {
             // Fallback legacy
-             ride.setAvailableSeats(ride.getAvailableSeats() + 1);
+            rideRepository.returnAvailableSeat(ride.getId());
         }
         
-        rideRepository.save(ride);
+        ride = rideRepository.findById(passenger.getRideId())
+            .orElseThrow(() -> new RuntimeException("Ride not found"));
+        syncAvailableSeats(ride);
+        rideEventPublisher.rideUpdated(ride);
         
         // SIMPLIFIED FARE CALCULATION
         // Rely on the precise distance calculated at acceptance time
@@ -580,12 +761,7 @@ public class RideService {
         Ride ride = rideRepository.findById(rideId)
             .orElseThrow(() -> new RuntimeException("Ride not found"));
         
-        ride.setStatus(status);
-        if (status == Ride.RideStatus.IN_PROGRESS) {
-            ride.setStartedAt(LocalDateTime.now());
-        } else if (status == Ride.RideStatus.COMPLETED) {
-            ride.setCompletedAt(LocalDateTime.now());
-            
+        if (status == Ride.RideStatus.COMPLETED) {
             // Trigger payments for all remaining passengers
             List<RidePassenger> remainingPassengers = passengerRepository
                 .findByRideIdAndStatus(rideId, RidePassenger.PassengerStatus.BOARDED);
@@ -593,9 +769,27 @@ public class RideService {
             for (RidePassenger passenger : remainingPassengers) {
                 dropPassenger(passenger.getId());
             }
+            
+            // Dropping updates seats in the database; reload so saving the status keeps them
+            if (!remainingPassengers.isEmpty()) {
+                ride = rideRepository.findById(rideId)
+                    .orElseThrow(() -> new RuntimeException("Ride not found"));
+            }
+        }
+        
+        ride.setStatus(status);
+        if (status == Ride.RideStatus.IN_PROGRESS) {
+            ride.setStartedAt(LocalDateTime.now());
+        } else if (status == Ride.RideStatus.COMPLETED) {
+            ride.setCompletedAt(LocalDateTime.now());
+        }
+        if (status == Ride.RideStatus.COMPLETED || status == Ride.RideStatus.CANCELLED) {
+            seatAvailability.evict(rideId);
         }
         
-        return rideRepository.save(ride);
+        Ride savedRide = rideRepository.save(ride);
+        rideEventPublisher.rideUpdated(savedRide);
+        return savedRide;
     }
     
     /**
@@ -605,81 +799,6 @@ public class RideService {
         return rideRepository.findByStatus(Ride.RideStatus.WAITING);
     }
 
-    /**
-     * Get available rides for a rider with STRICT visibility filtering
-     * 
-     * Visibility Rules:
-     * - Show ONLY ACTIVE WAITING rides (not COMPLETED, IN_PROGRESS, or old rides)
-     * - Allow multiple riders to see the same ride
-     * - Only filter at frontend level (rider cannot book their own ride twice)
-     * - Re-calculate available seats from actual bookings
-     * 
-     * CRITICAL: Force database refresh to ensure consistency across clients
-     */
-    public List<Ride> getAvailableRidesForRider(Long riderId) {
-        System.out.println("\n========== SEARCHING RIDES FOR RIDER " + riderId + " (Fresh DB Query) ==========");
-        
-        // CRITICAL: Fresh database query with forced refresh (not cached)
-        // This ensures we get the latest state of rides even if another rider just booked one
-        // Return WAITING (not started) OR IN_PROGRESS (started but potentially has empty seats)
-        List<Ride> allActiveRides = rideRepository.findAll().stream()
-            .filter(r -> r.getStatus() == Ride.RideStatus.WAITING || r.getStatus() == Ride.RideStatus.IN_PROGRESS)
-            .collect(java.util.stream.Collectors.toList());
-        
-        // FILTER: Only show rides created in the last 24 hours (recently created/active rides)
-        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(24);
-        List<Ride> recentActiveRides = allActiveRides.stream()
-            .filter(ride -> ride.getCreatedAt() != null && ride.getCreatedAt().isAfter(cutoffTime))
-            .filter(ride -> ride.getAvailableSeats() > 0) // Basic filtered
-            .toList();
-        
-        System.out.println("Total WAITING (ACTIVE/RECENT) rides in system: " + recentActiveRides.size());
-        
-        // DEDUPLICATE: If same driver has multiple rides with same route, show only most recent
-        Map<String, Ride> uniqueRidesMap = new HashMap<>();
-        for (Ride ride : recentActiveRides) {
-            String key = ride.getDriverId() + "|" + ride.getPickupLocation().toLowerCase() + "|" + ride.getDropLocation().toLowerCase();
-            if (!uniqueRidesMap.containsKey(key)) {
-                uniqueRidesMap.put(key, ride);
-            } else {
-                // Keep the newer one
-                Ride existing = uniqueRidesMap.get(key);
-                if (ride.getCreatedAt().isAfter(existing.getCreatedAt())) {
-                    uniqueRidesMap.put(key, ride);
-                }
-            }
-        }
-        
-        List<Ride> uniqueRides = uniqueRidesMap.values().stream()
-                .sorted((r1, r2) -> r2.getCreatedAt().compareTo(r1.getCreatedAt()))
-                .toList();
-
-        System.out.println("   Filtered duplicates. Returning " + uniqueRides.size() + " unique rides.");
-        
-        List<Ride> availableRides = uniqueRides.stream()
-            .peek(ride -> {
-                // CRITICAL: Always recalculate from actual DB records to ensure consistency
-                // Do NOT use the cached ride.availableSeats value
-                List<RidePassenger> matchedPassengers = passengerRepository.findByRideIdAndStatus(ride.getId(), RidePassenger.PassengerStatus.MATCHED);
-                List<RidePassenger> boardedPassengers = passengerRepository.findByRideIdAndStatus(ride.getId(), RidePassenger.PassengerStatus.BOARDED);
-                
-                // Count all active passengers (MATCHED or BOARDED)
-                int activePassengers = matchedPassengers.size() + boardedPassengers.size();
-                int seatsAvailable = ride.getTotalSeats() - activePassengers;
-                
-                // CRITICAL: ALWAYS override with recalculated value
-                ride.setAvailableSeats(seatsAvailable);
-                
-                // Populate the transient passengers list for frontend visibility
-                ride.setPassengers(new java.util.ArrayList<>());
-                if (!matchedPassengers.isEmpty()) ride.getPassengers().addAll(matchedPassengers);
-                if (!boardedPassengers.isEmpty()) ride.getPassengers().addAll(boardedPassengers);
-            })
-            .toList();
-        
-        return availableRides;
-    }
-
     /**
      * Get rides for a specific driver (all statuses)
      */
@@ -727,6 +846,10 @@ public class RideService {
         payload.put("requestId", request.getId());
         payload.put("pickupLocation", request.getPickupLocation());
         payload.put("dropLocation", request.getDropLocation());
+        payload.put("pickupLatitude", request.getPickupLatitude());
+        payload.put("pickupLongitude", request.getPickupLongitude());
+        payload.put("dropLatitude", request.getDropLatitude());
+        payload.put("dropLongitude", request.getDropLongitude());
         
         new Thread(() -> {
             try {
@@ -760,32 +883,33 @@ public class RideService {
      * Delete all rides - For testing/debugging only
      */
     public void deleteAllRides() {
+        List<Long> rideIds = rideRepository.findAll().stream().map(Ride::getId).toList();
         passengerRepository.deleteAll();
         requestRepository.deleteAll();
+        requestChanges.reset();
         rideRepository.deleteAll();
+        seatAvailability.clear();
+        rideIds.forEach(rideEventPublisher::rideRemoved);
     }
     // --- SEGMENT HELPERS ---
     
+    /**
+     * Segments {start, end} covering a rider's trip, located geometrically (no routing calls)
+     */
     private int[] findSegmentRange(Ride ride, double pLat, double pLon, double dLat, double dLon) {
          List<RouteSegment> segments = ride.getSegments();
          if (segments == null || segments.isEmpty()) return new int[]{-1, -1};
          
-         int start = -1;
-         int end = -1;
-         double minStart = Double.MAX_VALUE;
-         double minEnd = Double.MAX_VALUE;
-         
-         for (int i = 0; i < segments.size(); i++) {
-             RouteSegment seg = segments.get(i);
-             // dist to start
-             double dS = mapDistanceUtil.calculateDistance(pLat, pLon, seg.getStartLat(), seg.getStartLng());
-             if (dS < minStart) { minStart = dS; start = i; }
-             
-             // dist to end
-             double dE = mapDistanceUtil.calculateDistance(dLat, dLon, seg.getEndLat(), seg.getEndLng());
-             if (dE < minEnd) { minEnd = dE; end = i; }
-         }
-         return new int[]{start, end};
+         return SegmentLocator.of(segments).locate(pLat, pLon, dLat, dLon);
+    }
+    
+    /**
+     * Mirror the index's availability into the ride's availableSeats (what subscribers read)
+     */
+    private void syncAvailableSeats(Ride ride) {
+        if (ride.getSegments() != null && !ride.getSegments().isEmpty()) {
+            ride.setAvailableSeats(seatAvailability.availableSeats(ride));
+        }
     }
     
     private double calculatePreliminaryFare(Ride ride, int startIdx, int endIdx) {
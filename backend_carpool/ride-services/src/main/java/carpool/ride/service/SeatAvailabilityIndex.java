@@ -0,0 +1,169 @@
+package carpool.ride.service;
+
+import carpool.ride.entity.Ride;
+import carpool.ride.entity.RouteSegment;
+import carpool.ride.util.SegmentOccupancy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory seat availability of segmented rides, one {@link SegmentOccupancy} per ride.
+ *
+ * This is where the ride service reads availability from: the seats shown for a ride are
+ * the seats free on every segment of the rider's trip (or of the whole route), rather than
+ * a ride-level counter maintained separately. Reservations and releases are applied here as
+ * soon as they happen inside a transaction and undone if it rolls back; the conditional
+ * updates on route_segments stay the final guard. A ride is loaded from its segments the
+ * first time it is needed and dropped when it finishes.
+ */
+@Component
+public class SeatAvailabilityIndex {
+
+    private final Map<Long, SegmentOccupancy> rides = new ConcurrentHashMap<>();
+
+    /**
+     * Seats free along the whole route
+     */
+    public int availableSeats(Ride ride) {
+        SegmentOccupancy occupancy = occupancy(ride);
+        if (occupancy == null) {
+            return ride.getAvailableSeats() != null ? ride.getAvailableSeats() : 0;
+        }
+        synchronized (occupancy) {
+            return occupancy.freeSeats(0, occupancy.size() - 1);
+        }
+    }
+
+    /**
+     * Seats free on every segment from position from to position to
+     */
+    public int availableSeats(Ride ride, int from, int to) {
+        SegmentOccupancy occupancy = occupancy(ride);
+        if (occupancy == null) {
+            return availableSeats(ride);
+        }
+        synchronized (occupancy) {
+            return occupancy.freeSeats(from, to);
+        }
+    }
+
+    /**
+     * Seats free on segments from..to if the ride is already loaded, null otherwise.
+     * For callers holding a copy of the ride that may be older than the index.
+     */
+    public Integer loadedAvailableSeats(Long rideId, int from, int to) {
+        SegmentOccupancy occupancy = rides.get(rideId);
+        if (occupancy == null || to >= occupancy.size()) {
+            return null;
+        }
+        synchronized (occupancy) {
+            return occupancy.freeSeats(from, to);
+        }
+    }
+
+    /**
+     * Take a seat on segments from..to if every one of them has one. Undone if the current transaction rolls back.
+     */
+    public boolean reserve(Ride ride, int from, int to) {
+        SegmentOccupancy occupancy = occupancy(ride);
+        if (occupancy == null) {
+            return true;
+        }
+        synchronized (occupancy) {
+            if (!occupancy.reserve(from, to)) {
+                return false;
+            }
+        }
+        onRollback(() -> {
+            synchronized (occupancy) {
+                occupancy.release(from, to);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Give back a seat on segments from..to. Undone if the current transaction rolls back.
+     * A segment with no seat taken means the index drifted from the database (e.g. a duplicate
+     * drop): nothing is released, false is returned so the caller leaves the database alone,
+     * and the ride is reloaded from its segments on next use.
+     */
+    public boolean release(Ride ride, int from, int to) {
+        SegmentOccupancy occupancy = occupancy(ride);
+        if (occupancy == null) {
+            return true;
+        }
+        boolean released;
+        synchronized (occupancy) {
+            released = occupancy.release(from, to);
+        }
+        if (!released) {
+            System.err.println(" Seat index mismatch: ride " + ride.getId() + " has no seat taken on segments " +
+                               from + "-" + to + ", reloading it");
+            rides.remove(ride.getId(), occupancy);
+            return false;
+        }
+        onRollback(() -> {
+            synchronized (occupancy) {
+                occupancy.reserve(from, to);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Forget a ride; it is reloaded from its segments on next use
+     */
+    public void evict(Long rideId) {
+        rides.remove(rideId);
+    }
+
+    public void clear() {
+        rides.clear();
+    }
+
+    // --- INTERNALS ---
+
+    private SegmentOccupancy occupancy(Ride ride) {
+        List<RouteSegment> segments = ride.getSegments();
+        if (ride.getId() == null || segments == null || segments.isEmpty()) {
+            return null;
+        }
+        SegmentOccupancy occupancy = rides.computeIfAbsent(ride.getId(), id -> load(segments));
+        if (occupancy.size() != segments.size()) {
+            occupancy = load(segments);
+            rides.put(ride.getId(), occupancy);
+        }
+        return occupancy;
+    }
+
+    private static SegmentOccupancy load(List<RouteSegment> segments) {
+        int[] occupied = new int[segments.size()];
+        int[] total = new int[segments.size()];
+        for (int i = 0; i < segments.size(); i++) {
+            RouteSegment segment = segments.get(i);
+            occupied[i] = segment.getOccupiedSeats() != null ? segment.getOccupiedSeats() : 0;
+            total[i] = segment.getTotalSeats() != null ? segment.getTotalSeats() : 0;
+        }
+        return new SegmentOccupancy(occupied, total);
+    }
+
+    private static void onRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    undo.run();
+                }
+            }
+        });
+    }
+}
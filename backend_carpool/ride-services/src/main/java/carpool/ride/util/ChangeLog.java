@@ -0,0 +1,77 @@
+package carpool.ride.util;
+
+import java.util.*;
+
+/**
+ * Bounded log of which ids changed at which version, for delta sync.
+ *
+ * Every append gets the next version. A client that last saw version v asks for the ids
+ * changed after it; once the entries it needs have been dropped (or v comes from an earlier
+ * run of the service) the answer is null and the client reloads the full list. Versions start
+ * from the startup time in microseconds, so they keep increasing across restarts.
+ */
+public class ChangeLog {
+
+    private final int capacity;
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+    private long version;
+    private long floor; // oldest version a client can sync from
+
+    public ChangeLog(int capacity) {
+        this.capacity = capacity;
+        this.version = System.currentTimeMillis() * 1000;
+        this.floor = version;
+    }
+
+    /**
+     * Record that these ids changed; returns the new version
+     */
+    public synchronized long append(Collection<Long> ids) {
+        version++;
+        for (Long id : ids) {
+            changes.addLast(new Change(version, id));
+        }
+        while (changes.size() > capacity) {
+            floor = Math.max(floor, changes.removeFirst().version());
+        }
+        return version;
+    }
+
+    /**
+     * Forget everything: clients of any earlier version reload. Returns the new version
+     */
+    public synchronized long reset() {
+        changes.clear();
+        version++;
+        floor = version;
+        return version;
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Ids changed after since, up to and including upTo; null if since is not covered by the log
+     */
+    public synchronized Set<Long> changedSince(long since, long upTo) {
+        if (since < floor || since > upTo) {
+            return null;
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        Iterator<Change> newestFirst = changes.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Change change = newestFirst.next();
+            if (change.version() <= since) {
+                break;
+            }
+            if (change.version() <= upTo) {
+                ids.add(change.id());
+            }
+        }
+        return ids;
+    }
+
+    private record Change(long version, Long id) {
+    }
+}
@@ -1,26 +1,60 @@
 package carpool.ride.util;
 
+import carpool.common.routing.OfflineRoutingEngine;
+import carpool.common.routing.RouteEstimate;
+import carpool.common.upstream.UpstreamClient;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Component
 public class MapDistanceUtil {
     
     @Value("${openrouteservice.api-key}")
     private String apiKey;
     
+    @Autowired
+    private OfflineRoutingEngine routingEngine;
+    
+    @Autowired
+    private UpstreamClient upstreamClient;
+    
+    @Autowired
+    private RouteCache routeCache;
+    
+    @Value("${routing.legs-timeout-ms:5000}")
+    private long legsTimeoutMs;
+    
     private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    // Runs multi-waypoint requests so callers can stop waiting at the deadline
+    private final ExecutorService legRequests = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "route-legs");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     /**
-     * Calculate distance between two coordinates
+     * Calculate distance between two coordinates (offline road graph first, then the route cache,
+     * OpenRouteService otherwise)
      * @param fromLat Origin latitude
      * @param fromLng Origin longitude
      * @param toLat Destination latitude
@@ -29,39 +63,8 @@ public class MapDistanceUtil {
      */
     public double calculateDistance(double fromLat, double fromLng, double toLat, double toLng) {
         try {
-            // OpenRouteService Directions API
-            String url = String.format(
-                "https://api.openrouteservice.org/v2/directions/driving-car?start=%f,%f&end=%f,%f",
-                fromLng, fromLat, toLng, toLat
-            );
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", apiKey);
-            headers.set("Accept", "application/geo+json");
-            
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-            
-            // Parse JSON response
-            JsonNode root = objectMapper.readTree(response.getBody());
-            double distanceInMeters = root.get("features")
-                .get(0)
-                .get("properties")
-                .get("summary")
-                .get("distance")
-                .asDouble();
-            
-            double distanceInKm = distanceInMeters / 1000.0;
-            
-            System.out.println("Distance calculated: " + distanceInKm + " km");
-            
-            return Math.round(distanceInKm * 100.0) / 100.0; // Round to 2 decimals
+            RouteEstimate route = route(fromLat, fromLng, toLat, toLng);
+            return Math.round(route.getDistanceKm() * 100.0) / 100.0; // Round to 2 decimals
             
         } catch (Exception e) {
             System.err.println(" Error calculating distance: " + e.getMessage());
@@ -76,38 +79,157 @@ public class MapDistanceUtil {
      */
     public long calculateDuration(double fromLat, double fromLng, double toLat, double toLng) {
         try {
-            String url = String.format(
-                "https://api.openrouteservice.org/v2/directions/driving-car?start=%f,%f&end=%f,%f",
-                fromLng, fromLat, toLng, toLat
-            );
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", apiKey);
-            headers.set("Accept", "application/geo+json");
-            
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                url, HttpMethod.GET, entity, String.class
-            );
-            
-            JsonNode root = objectMapper.readTree(response.getBody());
-            double durationInSeconds = root.get("features")
-                .get(0)
-                .get("properties")
-                .get("summary")
-                .get("duration")
-                .asDouble();
-            
-            long durationInMinutes = Math.round(durationInSeconds / 60.0);
-            
-            System.out.println("Duration calculated: " + durationInMinutes + " min");
-            
-            return durationInMinutes;
+            RouteEstimate route = route(fromLat, fromLng, toLat, toLng);
+            return Math.round(route.getDurationSeconds() / 60.0);
             
         } catch (Exception e) {
             System.err.println(" Error calculating duration: " + e.getMessage());
             return 0L;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Distance and duration of every leg of a route through the given points, each {lat, lng}, in order.
+     * Legs known to the offline graph or the route cache are answered locally; the rest come from a
+     * single multi-waypoint OpenRouteService request. A leg is null if it had no answer within
+     * routing.legs-timeout-ms; the request keeps running and caches its legs for next time.
+     */
+    public List<RouteEstimate> calculateLegs(List<double[]> points) {
+        RouteEstimate[] legs = new RouteEstimate[Math.max(0, points.size() - 1)];
+        boolean missing = false;
+        for (int i = 0; i < legs.length; i++) {
+            double[] from = points.get(i);
+            double[] to = points.get(i + 1);
+            legs[i] = routingEngine.route(from[0], from[1], to[0], to[1]);
+            if (legs[i] == null) {
+                legs[i] = routeCache.get(from[0], from[1], to[0], to[1]);
+            }
+            missing |= legs[i] == null;
+        }
+        if (!missing) {
+            return Arrays.asList(legs);
+        }
+        
+        CompletableFuture<List<RouteEstimate>> request = CompletableFuture.supplyAsync(() -> {
+            try {
+                return fetchLegs(points);
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }, legRequests);
+        
+        try {
+            List<RouteEstimate> fetched = request.get(legsTimeoutMs, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < legs.length; i++) {
+                if (legs[i] == null) {
+                    legs[i] = fetched.get(i);
+                }
+            }
+        } catch (TimeoutException e) {
+            System.err.println(" Route legs not ready after " + legsTimeoutMs + " ms, using fallbacks");
+        } catch (Exception e) {
+            System.err.println(" Error calculating route legs: " + e.getMessage());
+        }
+        return Arrays.asList(legs);
+    }
+    
+    /**
+     * One OpenRouteService directions request through all the points; caches every leg it returns
+     */
+    private List<RouteEstimate> fetchLegs(List<double[]> points) throws Exception {
+        String url = "https://api.openrouteservice.org/v2/directions/driving-car";
+        
+        List<double[]> coordinates = new ArrayList<>();
+        for (double[] point : points) {
+            coordinates.add(new double[]{point[1], point[0]}); // ORS takes [lng, lat]
+        }
+        String requestBody = objectMapper.writeValueAsString(Map.of("coordinates", coordinates));
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", apiKey);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Accept", "application/json");
+        
+        HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
+        
+        String body = upstreamClient.call("ors", url + requestBody, () -> restTemplate.exchange(
+            url, HttpMethod.POST, entity, String.class
+        ).getBody());
+        
+        JsonNode segments = objectMapper.readTree(body)
+            .get("routes")
+            .get(0)
+            .get("segments");
+        
+        List<RouteEstimate> legs = new ArrayList<>();
+        for (int i = 0; i < points.size() - 1; i++) {
+            JsonNode segment = segments.get(i);
+            // ORS leaves out zero distances and durations, e.g. between identical points
+            RouteEstimate leg = new RouteEstimate(
+                segment.path("distance").asDouble(0) / 1000.0,
+                segment.path("duration").asDouble(0)
+            );
+            double[] from = points.get(i);
+            double[] to = points.get(i + 1);
+            routeCache.put(from[0], from[1], to[0], to[1], leg);
+            legs.add(leg);
+        }
+        
+        System.out.println("Route legs calculated: " + legs.size() + " legs in one request");
+        return legs;
+    }
+    
+    /**
+     * Distance and duration of the road route between two coordinates. One OpenRouteService
+     * response fills both, and is cached so the same trip is not requested again.
+     */
+    private RouteEstimate route(double fromLat, double fromLng, double toLat, double toLng) throws Exception {
+        RouteEstimate offline = routingEngine.route(fromLat, fromLng, toLat, toLng);
+        if (offline != null) {
+            return offline;
+        }
+        
+        RouteEstimate cached = routeCache.get(fromLat, fromLng, toLat, toLng);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // OpenRouteService Directions API
+        String url = String.format(
+            "https://api.openrouteservice.org/v2/directions/driving-car?start=%f,%f&end=%f,%f",
+            fromLng, fromLat, toLng, toLat
+        );
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", apiKey);
+        headers.set("Accept", "application/geo+json");
+        
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        
+        // Concurrent distance and duration lookups for the same trip share one request
+        String body = upstreamClient.call("ors", url, () -> restTemplate.exchange(
+            url,
+            HttpMethod.GET,
+            entity,
+            String.class
+        ).getBody());
+        
+        // Parse JSON response
+        JsonNode summary = objectMapper.readTree(body)
+            .get("features")
+            .get(0)
+            .get("properties")
+            .get("summary");
+        
+        RouteEstimate route = new RouteEstimate(
+            summary.get("distance").asDouble() / 1000.0,
+            summary.get("duration").asDouble()
+        );
+        
+        System.out.println("Route calculated: " + route.getDistanceKm() + " km, " +
+                         Math.round(route.getDurationSeconds() / 60.0) + " min");
+        
+        routeCache.put(fromLat, fromLng, toLat, toLng, route);
+        return route;
+    }
+}
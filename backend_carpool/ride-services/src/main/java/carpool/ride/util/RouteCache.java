@@ -0,0 +1,244 @@
+package carpool.ride.util;
+
+import carpool.ride.entity.CachedRoute;
+import carpool.ride.repository.CachedRouteRepository;
+import carpool.common.routing.RouteEstimate;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Road distance and duration between coordinate pairs seen before, kept in memory and in the
+ * route_distance_cache table.
+ *
+ * Coordinates are rounded to route-cache.precision-decimals (3 = about 110 m), so the daily
+ * trips along the same corridors land on the same entries. The table is loaded into memory once
+ * the application is ready; new routes are answered from memory straight away and written to the
+ * table in batches every route-cache.flush-interval-ms, off the request thread. At
+ * route-cache.max-entries the least recently used route makes room for the new one.
+ */
+@Component
+public class RouteCache {
+    
+    @Autowired
+    private CachedRouteRepository cachedRouteRepository;
+    
+    @Value("${route-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${route-cache.precision-decimals:3}")
+    private int precisionDecimals;
+    
+    @Value("${route-cache.max-entries:200000}")
+    private int maxEntries;
+    
+    @Value("${route-cache.flush-batch-size:500}")
+    private int flushBatchSize;
+    
+    private final Queue<CachedRoute> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    
+    // Access-ordered, so the eldest entry is always the least recently used one. Guarded by itself.
+    private final LinkedHashMap<Key, RouteEstimate> routes = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, RouteEstimate> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    
+    /**
+     * Cached route between two coordinates, or null if this pair has not been routed yet
+     */
+    public RouteEstimate get(double fromLat, double fromLng, double toLat, double toLng) {
+        if (!enabled) {
+            return null;
+        }
+        Key key = key(fromLat, fromLng, toLat, toLng);
+        RouteEstimate route;
+        synchronized (routes) {
+            route = routes.get(key);
+        }
+        (route != null ? hits : misses).incrementAndGet();
+        return route;
+    }
+    
+    /**
+     * Remember a route answered by OpenRouteService; it is persisted on the next flush
+     */
+    public void put(double fromLat, double fromLng, double toLat, double toLng, RouteEstimate route) {
+        if (!enabled) {
+            return;
+        }
+        Key key = key(fromLat, fromLng, toLat, toLng);
+        synchronized (routes) {
+            if (routes.putIfAbsent(key, route) != null) {
+                return;
+            }
+        }
+        
+        if (pendingCount.incrementAndGet() > maxEntries) {
+            // Database has been unreachable for a long time; keep serving from memory only
+            pendingCount.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        CachedRoute row = new CachedRoute();
+        row.setPrecisionDecimals(precisionDecimals);
+        row.setFromLatKey(key.fromLat());
+        row.setFromLngKey(key.fromLng());
+        row.setToLatKey(key.toLat());
+        row.setToLngKey(key.toLng());
+        row.setDistanceInKm(route.getDistanceKm());
+        row.setDurationInSeconds(route.getDurationSeconds());
+        row.setCreatedAt(LocalDateTime.now());
+        pending.add(row);
+    }
+    
+    /**
+     * Load the most recent routes for the configured precision into memory
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if (!enabled) {
+            System.out.println("Route cache disabled (route-cache.enabled=false)");
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            List<CachedRoute> rows = cachedRouteRepository.findByPrecisionDecimalsOrderByCreatedAtDesc(
+                precisionDecimals, PageRequest.of(0, maxEntries));
+            int loaded;
+            synchronized (routes) {
+                // Oldest first, so the newest routes end up the most recently used
+                for (int i = rows.size() - 1; i >= 0; i--) {
+                    CachedRoute row = rows.get(i);
+                    if (row.getDistanceInKm() == null || row.getDurationInSeconds() == null) {
+                        continue;
+                    }
+                    routes.putIfAbsent(
+                        new Key(row.getFromLatKey(), row.getFromLngKey(), row.getToLatKey(), row.getToLngKey()),
+                        new RouteEstimate(row.getDistanceInKm(), row.getDurationInSeconds()));
+                }
+                loaded = routes.size();
+            }
+            System.out.println("Route cache warmed with " + loaded + " routes in " +
+                             (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            System.err.println(" Route cache warm-up failed, starting cold: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Write routes learned since the last flush to the database
+     */
+    @Scheduled(fixedDelayString = "${route-cache.flush-interval-ms:5000}")
+    public void flush() {
+        List<CachedRoute> batch = new ArrayList<>();
+        CachedRoute row;
+        while ((row = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(row);
+            if (batch.size() == flushBatchSize) {
+                if (!write(batch)) {
+                    return;
+                }
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("precisionDecimals", precisionDecimals);
+        synchronized (routes) {
+            stats.put("entries", routes.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups > 0 ? Math.round(hitCount * 1000.0 / lookups) / 10.0 : 0.0);
+        stats.put("evictions", evictions.get());
+        stats.put("pendingWrites", pendingCount.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        return stats;
+    }
+    
+    // --- INTERNALS ---
+    
+    /**
+     * Save a batch; on failure the rows go back in the queue for the next flush
+     */
+    private boolean write(List<CachedRoute> batch) {
+        try {
+            cachedRouteRepository.saveAll(batch);
+            written.addAndGet(batch.size());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored some of these routes first; save the rest one by one
+            for (CachedRoute row : batch) {
+                try {
+                    row.setId(null);
+                    cachedRouteRepository.save(row);
+                    written.incrementAndGet();
+                } catch (DataIntegrityViolationException duplicate) {
+                    // already cached
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println(" Route cache flush failed, retrying later: " + e.getMessage());
+            for (CachedRoute row : batch) {
+                row.setId(null);
+                pending.add(row);
+                pendingCount.incrementAndGet();
+            }
+            return false;
+        }
+    }
+    
+    private Key key(double fromLat, double fromLng, double toLat, double toLng) {
+        double scale = Math.pow(10, precisionDecimals);
+        return new Key(Math.round(fromLat * scale), Math.round(fromLng * scale),
+                       Math.round(toLat * scale), Math.round(toLng * scale));
+    }
+    
+    private record Key(long fromLat, long fromLng, long toLat, long toLng) {
+    }
+}
@@ -0,0 +1,110 @@
+package carpool.ride.util;
+
+import carpool.ride.entity.RouteSegment;
+
+import java.util.List;
+
+/**
+ * Maps a rider's pickup and drop onto the segments of a ride's route without leaving the JVM.
+ *
+ * Each segment is treated as a straight line between its stops, on a local equirectangular
+ * projection (accurate to a few metres across a city). The pickup and drop are projected onto
+ * every segment, and the pair of segments with the smallest combined offset is chosen such
+ * that the pickup segment never comes after the drop segment.
+ */
+public final class SegmentLocator {
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    // Offsets closer than this (km) count as equal, e.g. a pickup right at a stop shared by two segments
+    private static final double TIE_KM = 0.001;
+
+    private final double[] coordinates; // startLat, startLng, endLat, endLng per segment; NaN without coordinates
+
+    private SegmentLocator(double[] coordinates) {
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * Locator over segments already in route order
+     */
+    public static SegmentLocator of(List<RouteSegment> segments) {
+        double[] coordinates = new double[segments.size() * 4];
+        for (int i = 0; i < segments.size(); i++) {
+            RouteSegment segment = segments.get(i);
+            coordinates[i * 4] = value(segment.getStartLat());
+            coordinates[i * 4 + 1] = value(segment.getStartLng());
+            coordinates[i * 4 + 2] = value(segment.getEndLat());
+            coordinates[i * 4 + 3] = value(segment.getEndLng());
+        }
+        return new SegmentLocator(coordinates);
+    }
+
+    /**
+     * Positions {start, end} of the segments the rider boards and leaves on, with start <= end,
+     * or {-1, -1} if no segment has coordinates
+     */
+    public int[] locate(double pickupLat, double pickupLng, double dropLat, double dropLng) {
+        int count = coordinates.length / 4;
+        double cosLat = Math.cos(Math.toRadians((pickupLat + dropLat) / 2));
+
+        // Best pickup segment at or before each position, then the drop segment that completes the cheapest pair
+        int bestStart = -1;
+        double bestStartKm = Double.MAX_VALUE;
+        int[] range = {-1, -1};
+        double bestTotal = Double.MAX_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            double pickupKm = offsetKm(i, pickupLat, pickupLng, cosLat);
+            // On a tie, board on the later segment: a pickup at a stop starts the next leg
+            if (!Double.isNaN(pickupKm) && pickupKm <= bestStartKm + TIE_KM) {
+                bestStart = i;
+                bestStartKm = Math.min(bestStartKm, pickupKm);
+            }
+            if (bestStart < 0) {
+                continue;
+            }
+
+            double dropKm = offsetKm(i, dropLat, dropLng, cosLat);
+            if (Double.isNaN(dropKm)) {
+                continue;
+            }
+            // On a tie, leave on the earlier segment: a drop at a stop ends the previous leg
+            double total = bestStartKm + dropKm;
+            if (total < bestTotal - TIE_KM) {
+                bestTotal = total;
+                range = new int[]{bestStart, i};
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Distance in km from a point to segment i, NaN if the segment has no coordinates
+     */
+    private double offsetKm(int i, double lat, double lng, double cosLat) {
+        double startLat = coordinates[i * 4];
+        double startLng = coordinates[i * 4 + 1];
+        double endLat = coordinates[i * 4 + 2];
+        double endLng = coordinates[i * 4 + 3];
+        if (Double.isNaN(startLat) || Double.isNaN(startLng) || Double.isNaN(endLat) || Double.isNaN(endLng)) {
+            return Double.NaN;
+        }
+
+        // Planar km relative to the segment start
+        double px = (lng - startLng) * cosLat * KM_PER_DEGREE;
+        double py = (lat - startLat) * KM_PER_DEGREE;
+        double sx = (endLng - startLng) * cosLat * KM_PER_DEGREE;
+        double sy = (endLat - startLat) * KM_PER_DEGREE;
+
+        double lengthSquared = sx * sx + sy * sy;
+        double t = lengthSquared > 0 ? Math.max(0, Math.min(1, (px * sx + py * sy) / lengthSquared)) : 0;
+        double dx = px - t * sx;
+        double dy = py - t * sy;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static double value(Double coordinate) {
+        return coordinate != null ? coordinate : Double.NaN;
+    }
+}
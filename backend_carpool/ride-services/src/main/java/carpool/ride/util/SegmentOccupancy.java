@@ -0,0 +1,144 @@
+package carpool.ride.util;
+
+/**
+ * Seat load of one ride's route segments: a segment tree with lazy range add.
+ *
+ * Each leaf holds occupiedSeats - totalSeats of a segment, so the maximum over a range is
+ * the tightest segment of that range and -max is the number of seats free on every one of
+ * them. A second tree keeps the least occupied segment of a range, so a release can check
+ * there is a seat to give back. Range reservations and releases, and range queries, are
+ * O(log n). Not thread-safe; callers synchronise per ride.
+ */
+public class SegmentOccupancy {
+
+    private final int size;
+    private final int[] max;
+    private final int[] minOccupied;
+    private final int[] pending;
+
+    /**
+     * @param occupied occupied seats per segment, in route order
+     * @param total    total seats per segment, in route order
+     */
+    public SegmentOccupancy(int[] occupied, int[] total) {
+        this.size = occupied.length;
+        this.max = new int[Math.max(1, 4 * size)];
+        this.minOccupied = new int[Math.max(1, 4 * size)];
+        this.pending = new int[Math.max(1, 4 * size)];
+        if (size > 0) {
+            build(1, 0, size - 1, occupied, total);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Seats free on every segment from position from to position to (inclusive)
+     */
+    public int freeSeats(int from, int to) {
+        return -query(1, 0, size - 1, from, to);
+    }
+
+    /**
+     * Take a seat on every segment of the range if all of them have one; false if any is full
+     */
+    public boolean reserve(int from, int to) {
+        if (freeSeats(from, to) <= 0) {
+            return false;
+        }
+        update(1, 0, size - 1, from, to, 1);
+        return true;
+    }
+
+    /**
+     * Give back a seat on every segment of the range if all of them have one taken; false
+     * (nothing changed) if any segment is already empty
+     */
+    public boolean release(int from, int to) {
+        if (queryMinOccupied(1, 0, size - 1, from, to) <= 0) {
+            return false;
+        }
+        update(1, 0, size - 1, from, to, -1);
+        return true;
+    }
+
+    private void build(int node, int low, int high, int[] occupied, int[] total) {
+        if (low == high) {
+            max[node] = occupied[low] - total[low];
+            minOccupied[node] = occupied[low];
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        build(2 * node, low, mid, occupied, total);
+        build(2 * node + 1, mid + 1, high, occupied, total);
+        pull(node);
+    }
+
+    private int query(int node, int low, int high, int from, int to) {
+        if (from <= low && high <= to) {
+            return max[node];
+        }
+        push(node);
+        int mid = (low + high) >>> 1;
+        int result = Integer.MIN_VALUE;
+        if (from <= mid) {
+            result = query(2 * node, low, mid, from, to);
+        }
+        if (to > mid) {
+            result = Math.max(result, query(2 * node + 1, mid + 1, high, from, to));
+        }
+        return result;
+    }
+
+    private int queryMinOccupied(int node, int low, int high, int from, int to) {
+        if (from <= low && high <= to) {
+            return minOccupied[node];
+        }
+        push(node);
+        int mid = (low + high) >>> 1;
+        int result = Integer.MAX_VALUE;
+        if (from <= mid) {
+            result = queryMinOccupied(2 * node, low, mid, from, to);
+        }
+        if (to > mid) {
+            result = Math.min(result, queryMinOccupied(2 * node + 1, mid + 1, high, from, to));
+        }
+        return result;
+    }
+
+    private void update(int node, int low, int high, int from, int to, int delta) {
+        if (from <= low && high <= to) {
+            max[node] += delta;
+            minOccupied[node] += delta;
+            pending[node] += delta;
+            return;
+        }
+        push(node);
+        int mid = (low + high) >>> 1;
+        if (from <= mid) {
+            update(2 * node, low, mid, from, to, delta);
+        }
+        if (to > mid) {
+            update(2 * node + 1, mid + 1, high, from, to, delta);
+        }
+        pull(node);
+    }
+
+    private void pull(int node) {
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]);
+        minOccupied[node] = Math.min(minOccupied[2 * node], minOccupied[2 * node + 1]);
+    }
+
+    private void push(int node) {
+        if (pending[node] != 0) {
+            for (int child = 2 * node; child <= 2 * node + 1; child++) {
+                max[child] += pending[node];
+                minOccupied[child] += pending[node];
+                pending[child] += pending[node];
+            }
+            pending[node] = 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package carpool.ride.service;
+
+import carpool.ride.entity.Ride;
+import carpool.ride.entity.RouteSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatAvailabilityIndexTest {
+
+    private final SeatAvailabilityIndex index = new SeatAvailabilityIndex();
+
+    @Test
+    void reservationsOnOverlappingRangesSetTheSeatsShown() {
+        Ride ride = ride(1L, 2, 0, 0, 0, 0);
+
+        assertTrue(index.reserve(ride, 0, 1));
+        assertTrue(index.reserve(ride, 1, 3));
+
+        assertEquals(0, index.availableSeats(ride));
+        assertEquals(1, index.availableSeats(ride, 0, 0));
+        assertEquals(0, index.availableSeats(ride, 1, 1));
+        assertEquals(1, index.availableSeats(ride, 2, 3));
+        assertEquals(Integer.valueOf(1), index.loadedAvailableSeats(1L, 3, 3));
+
+        assertFalse(index.reserve(ride, 0, 3));
+        assertTrue(index.reserve(ride, 3, 3));
+        assertEquals(0, index.availableSeats(ride, 3, 3));
+
+        assertTrue(index.release(ride, 1, 3));
+        assertEquals(1, index.availableSeats(ride));
+    }
+
+    @Test
+    void releaseWithNoSeatTakenIsRefusedAndReloadsTheRide() {
+        Ride ride = ride(2L, 3, 1, 0, 1);
+
+        assertFalse(index.release(ride, 0, 2));
+        assertNull(index.loadedAvailableSeats(2L, 0, 2), "drifted ride is dropped from the index");
+
+        // Reloaded from the segments, which were not touched
+        assertEquals(3, index.availableSeats(ride, 1, 1));
+        assertTrue(index.release(ride, 0, 0));
+        assertEquals(3, index.availableSeats(ride, 0, 0));
+    }
+
+    @Test
+    void ridesWithoutSegmentsUseTheRideCounter() {
+        Ride ride = new Ride();
+        ride.setId(3L);
+        ride.setAvailableSeats(2);
+
+        assertEquals(2, index.availableSeats(ride));
+        assertEquals(2, index.availableSeats(ride, 0, 5));
+        assertTrue(index.reserve(ride, 0, 0));
+        assertTrue(index.release(ride, 0, 0));
+        assertNull(index.loadedAvailableSeats(3L, 0, 0));
+    }
+
+    // --- HELPERS ---
+
+    private static Ride ride(Long id, int seats, int... occupied) {
+        Ride ride = new Ride();
+        ride.setId(id);
+        List<RouteSegment> segments = new ArrayList<>();
+        for (int i = 0; i < occupied.length; i++) {
+            RouteSegment segment = new RouteSegment();
+            segment.setSequenceOrder(i);
+            segment.setTotalSeats(seats);
+            segment.setOccupiedSeats(occupied[i]);
+            segments.add(segment);
+        }
+        ride.setSegments(segments);
+        return ride;
+    }
+}
@@ -0,0 +1,221 @@
+package carpool.ride.service;
+
+import carpool.ride.entity.Ride;
+import carpool.ride.entity.RidePassenger;
+import carpool.ride.entity.RideRequest;
+import carpool.ride.entity.RouteSegment;
+import carpool.ride.repository.RidePassengerRepository;
+import carpool.ride.repository.RideRepository;
+import carpool.ride.repository.RideRequestRepository;
+import carpool.ride.repository.RouteSegmentRepository;
+import carpool.ride.util.MapDistanceUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many drivers' accepts racing for the same seats must never overbook a segment
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:seats;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RideService.class, SeatAvailabilityIndex.class, RequestChangeLog.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SeatReservationConcurrencyTest {
+
+    private static final int SEATS = 4;
+    private static final int THREADS = 32;
+    private static final double LAT = 18.5;
+    private static final double[] STOP_LNG = {73.80, 73.85, 73.90, 73.95};
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideRequestRepository requestRepository;
+
+    @Autowired
+    private RidePassengerRepository passengerRepository;
+
+    @Autowired
+    private RouteSegmentRepository segmentRepository;
+
+    @Autowired
+    private SeatAvailabilityIndex seatAvailability;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    @MockBean
+    private MapDistanceUtil mapDistanceUtil;
+
+    @MockBean
+    private RideEventPublisher rideEventPublisher;
+
+    @AfterEach
+    void cleanUp() {
+        passengerRepository.deleteAll();
+        requestRepository.deleteAll();
+        rideRepository.deleteAll();
+        seatAvailability.clear();
+    }
+
+    @Test
+    void concurrentAcceptsNeverOverbookASegment() throws Exception {
+        Long rideId = saveRide();
+        Random random = new Random(42);
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(STOP_LNG.length - 1);
+            int to = from + 1 + random.nextInt(STOP_LNG.length - 1 - from);
+            requestIds.add(saveRequest(from, to, rideId));
+        }
+
+        AtomicInteger accepted = new AtomicInteger();
+        runConcurrently(requestIds, requestId -> {
+            rideService.acceptRideRequest(requestId, rideId);
+            accepted.incrementAndGet();
+        });
+
+        List<RidePassenger> passengers = passengerRepository.findByRideId(rideId);
+        assertEquals(accepted.get(), passengers.size());
+        assertTrue(accepted.get() > 0);
+        assertEquals(accepted.get(), requestRepository.findAll().stream()
+            .filter(r -> r.getStatus() == RideRequest.RequestStatus.MATCHED)
+            .count());
+
+        for (RouteSegment segment : segmentRepository.findByRideIdOrderBySequenceOrderAsc(rideId)) {
+            int seq = segment.getSequenceOrder();
+            long riding = passengers.stream()
+                .filter(p -> p.getStartSegmentSequence() <= seq && seq <= p.getEndSegmentSequence())
+                .count();
+            assertTrue(segment.getOccupiedSeats() <= SEATS, "segment " + seq + " overbooked");
+            assertEquals(riding, segment.getOccupiedSeats().longValue(), "segment " + seq + " seat count");
+        }
+
+        // The in-memory availability agrees with the database
+        Ride ride = rideRepository.findById(rideId).orElseThrow();
+        for (RouteSegment segment : ride.getSegments()) {
+            int seq = segment.getSequenceOrder();
+            assertEquals(SEATS - segment.getOccupiedSeats(), seatAvailability.availableSeats(ride, seq, seq),
+                "segment " + seq + " availability");
+        }
+    }
+
+    @Test
+    void sameRequestIsAcceptedOnce() throws Exception {
+        Long rideId = saveRide();
+        Long requestId = saveRequest(0, STOP_LNG.length - 1, rideId);
+
+        List<Long> attempts = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            attempts.add(requestId);
+        }
+        runConcurrently(attempts, id -> rideService.acceptRideRequest(id, rideId));
+
+        assertEquals(1, passengerRepository.findByRideId(rideId).size());
+        for (RouteSegment segment : segmentRepository.findByRideIdOrderBySequenceOrderAsc(rideId)) {
+            assertEquals(1, segment.getOccupiedSeats());
+        }
+    }
+
+    // --- HELPERS ---
+
+    private void runConcurrently(List<Long> requestIds, Accept accept) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long requestId : requestIds) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    accept.run(requestId);
+                } catch (RuntimeException rejected) {
+                    // full, or already accepted by another thread
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    private Long saveRide() {
+        Ride ride = new Ride();
+        ride.setDriverId(1L);
+        ride.setPickupLocation("Stop 0");
+        ride.setDropLocation("Stop " + (STOP_LNG.length - 1));
+        ride.setRoute("test");
+        ride.setTotalSeats(SEATS);
+        ride.setAvailableSeats(SEATS);
+        ride.setStatus(Ride.RideStatus.WAITING);
+        ride.setCreatedAt(LocalDateTime.now());
+
+        List<RouteSegment> segments = new ArrayList<>();
+        for (int i = 0; i < STOP_LNG.length - 1; i++) {
+            RouteSegment segment = new RouteSegment();
+            segment.setRide(ride);
+            segment.setSequenceOrder(i);
+            segment.setStartLocation("Stop " + i);
+            segment.setStartLat(LAT);
+            segment.setStartLng(STOP_LNG[i]);
+            segment.setEndLocation("Stop " + (i + 1));
+            segment.setEndLat(LAT);
+            segment.setEndLng(STOP_LNG[i + 1]);
+            segment.setDistanceInKm(5.0);
+            segment.setTotalSeats(SEATS);
+            segment.setOccupiedSeats(0);
+            segment.setBaseRatePerKm(10.0);
+            segments.add(segment);
+        }
+        ride.setSegments(segments);
+        return rideRepository.save(ride).getId();
+    }
+
+    private Long saveRequest(int fromStop, int toStop, Long rideId) {
+        RideRequest request = new RideRequest();
+        request.setRiderId((long) fromStop * 10 + toStop);
+        request.setPickupLocation("Stop " + fromStop);
+        request.setDropLocation("Stop " + toStop);
+        request.setPickupLatitude(LAT);
+        request.setPickupLongitude(STOP_LNG[fromStop]);
+        request.setDropLatitude(LAT);
+        request.setDropLongitude(STOP_LNG[toStop]);
+        request.setStatus(RideRequest.RequestStatus.PENDING);
+        request.setMatchedRideId(rideId);
+        request.setCreatedAt(LocalDateTime.now());
+        return requestRepository.save(request).getId();
+    }
+
+    private interface Accept {
+        void run(Long requestId);
+    }
+}
@@ -0,0 +1,126 @@
+package carpool.ride.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentOccupancyTest {
+
+    @Test
+    void overlappingRangesShareTheTightestSegment() {
+        SegmentOccupancy occupancy = new SegmentOccupancy(new int[5], seats(5, 2));
+
+        assertTrue(occupancy.reserve(0, 2));
+        assertTrue(occupancy.reserve(2, 4));
+
+        assertEquals(1, occupancy.freeSeats(0, 1));
+        assertEquals(0, occupancy.freeSeats(2, 2));
+        assertEquals(1, occupancy.freeSeats(3, 4));
+        assertEquals(0, occupancy.freeSeats(0, 4));
+
+        // Segment 2 is full, so any range across it is rejected; ranges beside it still fit
+        assertFalse(occupancy.reserve(1, 3));
+        assertTrue(occupancy.reserve(0, 1));
+        assertTrue(occupancy.reserve(3, 4));
+        assertEquals(0, occupancy.freeSeats(0, 4));
+
+        assertTrue(occupancy.release(0, 2));
+        assertEquals(1, occupancy.freeSeats(2, 2));
+        assertEquals(1, occupancy.freeSeats(0, 1));
+        assertEquals(0, occupancy.freeSeats(3, 4));
+        assertTrue(occupancy.reserve(2, 2));
+    }
+
+    @Test
+    void boundarySegments() {
+        SegmentOccupancy occupancy = new SegmentOccupancy(new int[]{0, 1, 0, 0}, seats(4, 1));
+
+        assertEquals(1, occupancy.freeSeats(0, 0));
+        assertEquals(1, occupancy.freeSeats(3, 3));
+        assertEquals(0, occupancy.freeSeats(0, 3));
+
+        assertTrue(occupancy.reserve(0, 0));
+        assertTrue(occupancy.reserve(3, 3));
+        assertFalse(occupancy.reserve(0, 0));
+        assertFalse(occupancy.reserve(3, 3));
+        assertEquals(1, occupancy.freeSeats(2, 2));
+
+        assertTrue(occupancy.release(3, 3));
+        assertEquals(1, occupancy.freeSeats(3, 3));
+        assertEquals(0, occupancy.freeSeats(0, 0));
+
+        SegmentOccupancy single = new SegmentOccupancy(new int[]{0}, new int[]{3});
+        assertTrue(single.reserve(0, 0));
+        assertEquals(2, single.freeSeats(0, 0));
+    }
+
+    @Test
+    void fullRangeRejectsReservationAndChangesNothing() {
+        SegmentOccupancy occupancy = new SegmentOccupancy(new int[]{1, 2, 1}, seats(3, 2));
+
+        assertFalse(occupancy.reserve(0, 2));
+        assertEquals(1, occupancy.freeSeats(0, 0));
+        assertEquals(0, occupancy.freeSeats(1, 1));
+        assertEquals(1, occupancy.freeSeats(2, 2));
+    }
+
+    @Test
+    void releaseOfAnEmptySegmentChangesNothing() {
+        SegmentOccupancy occupancy = new SegmentOccupancy(new int[]{1, 0, 1}, seats(3, 2));
+
+        assertFalse(occupancy.release(0, 2));
+        assertEquals(1, occupancy.freeSeats(0, 0));
+        assertEquals(2, occupancy.freeSeats(1, 1));
+        assertEquals(1, occupancy.freeSeats(2, 2));
+
+        assertTrue(occupancy.release(0, 0));
+        assertFalse(occupancy.release(0, 0));
+    }
+
+    @Test
+    void matchesPerSegmentCountsOnRandomOperations() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int size = 1 + random.nextInt(12);
+            int[] occupied = new int[size];
+            int[] total = new int[size];
+            for (int i = 0; i < size; i++) {
+                total[i] = 1 + random.nextInt(4);
+                occupied[i] = random.nextInt(total[i] + 1);
+            }
+            SegmentOccupancy occupancy = new SegmentOccupancy(occupied.clone(), total);
+
+            for (int step = 0; step < 200; step++) {
+                int from = random.nextInt(size);
+                int to = from + random.nextInt(size - from);
+                int free = Integer.MAX_VALUE;
+                int least = Integer.MAX_VALUE;
+                for (int i = from; i <= to; i++) {
+                    free = Math.min(free, total[i] - occupied[i]);
+                    least = Math.min(least, occupied[i]);
+                }
+                assertEquals(free, occupancy.freeSeats(from, to), "free seats, round " + round);
+
+                boolean reserving = random.nextBoolean();
+                boolean applied = reserving ? occupancy.reserve(from, to) : occupancy.release(from, to);
+                assertEquals(reserving ? free > 0 : least > 0, applied, "applied, round " + round);
+                if (applied) {
+                    for (int i = from; i <= to; i++) {
+                        occupied[i] += reserving ? 1 : -1;
+                    }
+                }
+            }
+        }
+    }
+
+    // --- HELPERS ---
+
+    private static int[] seats(int segments, int seats) {
+        int[] total = new int[segments];
+        Arrays.fill(total, seats);
+        return total;
+    }
+}
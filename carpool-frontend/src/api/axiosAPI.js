@@ -34,10 +34,11 @@ export const rideAPI = {
   getActiveRides: () => api.get("/rides/active"),
   getRidesByDriver: (driverId) => api.get(`/rides/driver/${driverId}`),
   // CRITICAL: Add cache-busting timestamp to ensure fresh data across multiple clients
-  getAvailableRides: (riderId) => 
+  getAvailableRides: (riderId, since) => 
     api.get("/rides/available", { 
       params: { 
         riderId,
+        since, // Last version seen: only changes are returned
         // Cache buster: force fresh data on every request
         _t: Date.now()
       },
@@ -53,7 +54,8 @@ export const rideAPI = {
 
   // Rider endpoints
   createRideRequest: (data) => api.post("/rides/request", data),
-  getPendingRequests: (rideId) => api.get(`/rides/${rideId}/requests`),
+  getPendingRequests: (rideId, since) =>
+    api.get(`/rides/${rideId}/requests`, { params: { since } }),
   getRiderRequests: (riderId) => api.get(`/rides/request/rider/${riderId}`),
   getRiderActiveRequests: (riderId) => api.get(`/rides/request/rider/${riderId}/active`),
   getRideHistory: (riderId) => api.get(`/rides/rider/history/${riderId}`),
@@ -1,6 +1,7 @@
 import React from "react";
 import { useEffect, useState } from "react";
 import { notificationAPI } from "../../api/axiosAPI";
+import { openEventStream } from "../../utils/eventStream";
 
 export default function NotificationList() {
   const user = JSON.parse(localStorage.getItem("user"));
@@ -10,7 +11,9 @@ export default function NotificationList() {
   const [lastFetch, setLastFetch] = useState(null);
 
   useEffect(() => {
+    let streamOpen = false;
     const fetchNotifications = async () => {
+      if (streamOpen) return; // new notifications arrive over the stream
       try {
         const res = await notificationAPI.getUnreadNotifications(user.id);
         const newNotifications = res.data || [];
@@ -36,8 +39,26 @@ export default function NotificationList() {
     };
 
     fetchNotifications();
-    const interval = setInterval(fetchNotifications, 15000); // Fetch every 15 seconds
-    return () => clearInterval(interval);
+    const closeStream = openEventStream(
+      `/notifications/user/${user.id}/stream`,
+      (name, notification) => {
+        if (name !== "notification") return;
+        setNotifications((prevNotifs) =>
+          prevNotifs.some((n) => n.id === notification.id)
+            ? prevNotifs
+            : [...prevNotifs, notification].slice(-10)
+        );
+        setLastFetch(new Date());
+      },
+      (open) => {
+        streamOpen = open;
+      }
+    );
+    const interval = setInterval(fetchNotifications, 15000); // Fallback while the stream is down
+    return () => {
+      clearInterval(interval);
+      closeStream();
+    };
   }, [user.id]);
 
   const visibleNotifications = notifications.filter(
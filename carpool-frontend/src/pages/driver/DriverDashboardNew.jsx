@@ -1,4 +1,4 @@
-import { useEffect, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import { useAuth } from "../../context/AuthContext";
 import { useNavigate } from "react-router-dom";
 import { rideAPI, notificationAPI, paymentAPI } from "../../api/axiosAPI";
@@ -6,6 +6,8 @@ import LocationPicker from "../../components/Common/LocationPicker";
 import IncomingRideRequest from "../../components/Ride/IncomingRideRequest";
 import ActiveDriverRideCard from "../../components/Ride/ActiveDriverRideCard";
 import { initiatePayment, convertToPaise } from "../../utils/razorpayUtils";
+import { applyDelta } from "../../utils/deltaSync";
+import { openEventStream } from "../../utils/eventStream";
 import { LogOut, Bell, Plus, Loader, TrendingUp, X } from "lucide-react";
 import { RIDE_STATUS, PASSENGER_STATUS } from "../../utils/constants";
 
@@ -137,10 +139,107 @@ export default function DriverDashboardNew() {
   }, [currentRide?.id]);
 
   const [endpointNotFound, setEndpointNotFound] = useState(false); // Track if endpoint doesn't exist
+  const requestSync = useRef({ version: undefined, requests: [] }); // Pending requests held between polls
+  const requestStreamOpen = useRef(false);
 
-  // Polling for incoming ride requests
+  // Incoming ride requests: pushed over SSE, polled only while the stream is down
   useEffect(() => {
+    // Show the first request the driver has not handled yet
+    const showFirstUnprocessed = (requests) => {
+      console.log("Parsed requests array:", requests);
+      console.log("Requests count:", requests.length, "Processed IDs:", Array.from(processedRequestIds));
+      
+      // Find first unprocessed request
+      let firstUnprocessedRequest = null;
+      if (Array.isArray(requests) && requests.length > 0) {
+        for (const req of requests) {
+          console.log("Checking request ID:", req.id, "Already processed?", processedRequestIds.has(req.id));
+          if (!processedRequestIds.has(req.id)) {
+            firstUnprocessedRequest = req;
+            console.log("Found unprocessed request:", req.id);
+            break;
+          }
+        }
+      }
+      
+      // Show the first unprocessed request if any and modal is not already showing
+      if (firstUnprocessedRequest) {
+        console.log("Creating modal for request:", firstUnprocessedRequest);
+        const firstRequest = firstUnprocessedRequest;
+        
+        // Try to get coordinates from RideRequest
+        let pickupLat = firstRequest.pickupLatitude;
+        let pickupLng = firstRequest.pickupLongitude;
+        let dropLat = firstRequest.dropLatitude;
+        let dropLng = firstRequest.dropLongitude;
+        
+        // If not in RideRequest, try to look up from location names
+        if (pickupLat === undefined || pickupLng === undefined) {
+          const pickupCoords = getLocationCoordinates(firstRequest.pickupLocation || firstRequest.pickup);
+          if (pickupCoords) {
+            pickupLat = pickupCoords.lat;
+            pickupLng = pickupCoords.lng;
+          }
+        }
+        
+        if (dropLat === undefined || dropLng === undefined) {
+          const dropCoords = getLocationCoordinates(firstRequest.dropLocation || firstRequest.drop);
+          if (dropCoords) {
+            dropLat = dropCoords.lat;
+            dropLng = dropCoords.lng;
+          }
+        }
+        
+        // Fallback to default coordinates if still not found
+        if (pickupLat === undefined) pickupLat = 18.5204;
+        if (pickupLng === undefined) pickupLng = 73.8567;
+        if (dropLat === undefined) dropLat = 18.5383;
+        if (dropLng === undefined) dropLng = 73.8701;
+        
+        console.log("Final coordinates for popup - from request or location lookup:", {
+          pickupLocation: firstRequest.pickupLocation || firstRequest.pickup,
+          pickup: { lat: pickupLat, lng: pickupLng },
+          dropLocation: firstRequest.dropLocation || firstRequest.drop,
+          drop: { lat: dropLat, lng: dropLng }
+        });
+        
+        const newRequest = {
+          id: firstRequest.id,
+          riderId: firstRequest.riderId,
+          riderName: firstRequest.riderName || "Rider",
+          pickupLatitude: pickupLat,
+          pickupLongitude: pickupLng,
+          dropLatitude: dropLat,
+          dropLongitude: dropLng,
+          pickupLocation: {
+            name: firstRequest.pickupLocation || firstRequest.pickup,
+            lat: pickupLat,
+            lng: pickupLng,
+          },
+          dropLocation: {
+            name: firstRequest.dropLocation || firstRequest.drop,
+            lat: dropLat,
+            lng: dropLng,
+          },
+          status: firstRequest.status,
+          // Pass the calculated distance and fare from Rider side
+          distance: firstRequest.distance,
+          fare: firstRequest.fare,
+        };
+        
+        // Show the request modal - DON'T mark as processed yet
+        // User will mark it as processed when they accept/reject
+        setIncomingRideRequest(newRequest);
+        console.log("Modal state updated with request:", firstRequest.id);
+      } else {
+        console.log("No new unprocessed request to show.");
+      }
+    };
+
     const checkIncomingRequests = async () => {
+      if (requestStreamOpen.current) {
+        return; // the stream delivers requests as they happen
+      }
       if (!currentRide?.id || endpointNotFound) {
         console.log("Skipping check - currentRide.id:", currentRide?.id, "endpointNotFound:", endpointNotFound);
         return;
@@ -148,109 +247,14 @@ export default function DriverDashboardNew() {
       
       try {
         console.log("Checking for incoming requests for ride:", currentRide.id);
-        const res = await rideAPI.getPendingRequests(currentRide.id);
+        // Ask only for changes since the last poll, then merge them into the list we hold
+        const res = await rideAPI.getPendingRequests(currentRide.id, requestSync.current.version);
         console.log("Raw API response:", res);
         
-        // Handle various response formats from backend
-        let requests = [];
-        if (Array.isArray(res.data)) {
-          requests = res.data;
-        } else if (res.data?.requests && Array.isArray(res.data.requests)) {
-          requests = res.data.requests;
-        } else if (res.data?.data && Array.isArray(res.data.data)) {
-          requests = res.data.data;
-        } else if (res.data) {
-          requests = Array.isArray(res.data) ? res.data : [];
-        }
-        
-        console.log("Parsed requests array:", requests);
-        console.log("Requests count:", requests.length, "Processed IDs:", Array.from(processedRequestIds));
-        
-        // Find first unprocessed request
-        let firstUnprocessedRequest = null;
-        if (Array.isArray(requests) && requests.length > 0) {
-          for (const req of requests) {
-            console.log("Checking request ID:", req.id, "Already processed?", processedRequestIds.has(req.id));
-            if (!processedRequestIds.has(req.id)) {
-              firstUnprocessedRequest = req;
-              console.log("Found unprocessed request:", req.id);
-              break;
-            }
-          }
-        }
+        const requests = applyDelta(requestSync.current.requests, res.data, "requests");
+        requestSync.current = { version: res.data?.version, requests };
         
-        // Show the first unprocessed request if any and modal is not already showing
-        if (firstUnprocessedRequest) {
-          console.log("Creating modal for request:", firstUnprocessedRequest);
-          const firstRequest = firstUnprocessedRequest;
-          
-          // Try to get coordinates from RideRequest
-          let pickupLat = firstRequest.pickupLatitude;
-          let pickupLng = firstRequest.pickupLongitude;
-          let dropLat = firstRequest.dropLatitude;
-          let dropLng = firstRequest.dropLongitude;
-          
-          // If not in RideRequest, try to look up from location names
-          if (pickupLat === undefined || pickupLng === undefined) {
-            const pickupCoords = getLocationCoordinates(firstRequest.pickupLocation || firstRequest.pickup);
-            if (pickupCoords) {
-              pickupLat = pickupCoords.lat;
-              pickupLng = pickupCoords.lng;
-            }
-          }
-          
-          if (dropLat === undefined || dropLng === undefined) {
-            const dropCoords = getLocationCoordinates(firstRequest.dropLocation || firstRequest.drop);
-            if (dropCoords) {
-              dropLat = dropCoords.lat;
-              dropLng = dropCoords.lng;
-            }
-          }
-          
-          // Fallback to default coordinates if still not found
-          if (pickupLat === undefined) pickupLat = 18.5204;
-          if (pickupLng === undefined) pickupLng = 73.8567;
-          if (dropLat === undefined) dropLat = 18.5383;
-          if (dropLng === undefined) dropLng = 73.8701;
-          
-          console.log("Final coordinates for popup - from request or location lookup:", {
-            pickupLocation: firstRequest.pickupLocation || firstRequest.pickup,
-            pickup: { lat: pickupLat, lng: pickupLng },
-            dropLocation: firstRequest.dropLocation || firstRequest.drop,
-            drop: { lat: dropLat, lng: dropLng }
-          });
-          
-          const newRequest = {
-            id: firstRequest.id,
-            riderId: firstRequest.riderId,
-            riderName: firstRequest.riderName || "Rider",
-            pickupLatitude: pickupLat,
-            pickupLongitude: pickupLng,
-            dropLatitude: dropLat,
-            dropLongitude: dropLng,
-            pickupLocation: {
-              name: firstRequest.pickupLocation || firstRequest.pickup,
-              lat: pickupLat,
-              lng: pickupLng,
-            },
-            dropLocation: {
-              name: firstRequest.dropLocation || firstRequest.drop,
-              lat: dropLat,
-              lng: dropLng,
-            },
-            status: firstRequest.status,
-            // Pass the calculated distance and fare from Rider side
-            distance: firstRequest.distance,
-            fare: firstRequest.fare,
-          };
-          
-          // Show the request modal - DON'T mark as processed yet
-          // User will mark it as processed when they accept/reject
-          setIncomingRideRequest(newRequest);
-          console.log("Modal state updated with request:", firstRequest.id);
-        } else {
-          console.log("No new unprocessed request to show.");
-        }
+        showFirstUnprocessed(requests);
       } catch (err) {
         // If endpoint doesn't exist (404), stop trying
         if (err.response?.status === 404) {
@@ -265,15 +269,48 @@ export default function DriverDashboardNew() {
     // Check immediately on ride creation, then poll
     if (currentRide?.id && !endpointNotFound) {
       console.log("Starting polling for ride:", currentRide.id);
+      requestSync.current = { version: undefined, requests: [] };
+
+      // Stream events update the same list as the polls
+      // Sync first, then request-created/-updated/-accepted/-rejected
+      const closeStream = openEventStream(
+        `/rides/${currentRide.id}/requests/stream`,
+        (name, data, id) => {
+          let requests;
+          if (name === "sync") {
+            requests = applyDelta(requestSync.current.requests, data, "requests");
+          } else {
+            // One request changed: keep it while pending, drop it once accepted or rejected
+            const pending = data.status === "PENDING";
+            requests = applyDelta(
+              requestSync.current.requests,
+              { full: false, changed: pending ? [data] : [], removed: pending ? [] : [data.id] },
+              "requests"
+            );
+          }
+          requestSync.current = { version: id ? Number(id) : requestSync.current.version, requests };
+          showFirstUnprocessed(requests);
+        },
+        (open) => {
+          requestStreamOpen.current = open;
+        }
+      );
+
       checkIncomingRequests();
       const interval = setInterval(checkIncomingRequests, 3000);
-      return () => clearInterval(interval);
+      return () => {
+        clearInterval(interval);
+        closeStream();
+        requestStreamOpen.current = false;
+      };
     }
   }, [currentRide?.id, endpointNotFound]);
 
-  // Fetch notifications
+  // Notifications: loaded once, then pushed over SSE; polled only while the stream is down
   useEffect(() => {
+    let streamOpen = false;
     const fetchNotifications = async () => {
+      if (streamOpen) return;
       try {
         const res = await notificationAPI.getUnreadNotifications(user.id);
         const notifs = res.data || [];
@@ -285,8 +322,26 @@ export default function DriverDashboardNew() {
     };
 
     fetchNotifications();
+    const closeStream = openEventStream(
+      `/notifications/user/${user.id}/stream`,
+      (name, notification) => {
+        if (name !== "notification" || notification.read) return;
+        setNotifications((prev) => {
+          if (prev.some((n) => n.id === notification.id)) return prev;
+          const next = [notification, ...prev];
+          setUnreadCount(next.length);
+          return next;
+        });
+      },
+      (open) => {
+        streamOpen = open;
+      }
+    );
     const interval = setInterval(fetchNotifications, 10000);
-    return () => clearInterval(interval);
+    return () => {
+      clearInterval(interval);
+      closeStream();
+    };
   }, [user.id]);
 
   // Fetch driver earnings (Calculated from completed rides today)
@@ -1,4 +1,4 @@
-import { useEffect, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import { useAuth } from "../../context/AuthContext";
 import { useNavigate } from "react-router-dom";
 import { rideAPI, paymentAPI, notificationAPI } from "../../api/axiosAPI";
@@ -7,6 +7,7 @@ import RiderActiveRideStatus from "../../components/Ride/RiderActiveRideStatus";
 import RidePaymentModal from "../../components/Ride/RidePaymentModal";
 import { LogOut, Search, Loader, MapPin, DollarSign, Car, Star, Users, CreditCard, User, Bell } from "lucide-react";
 import { RIDE_STATUS, PASSENGER_STATUS } from "../../utils/constants";
+import { applyDelta } from "../../utils/deltaSync";
 
 export default function RiderDashboardNew() {
   const { user, logout } = useAuth();
@@ -24,6 +25,7 @@ export default function RiderDashboardNew() {
   const [searchRoadDistance, setSearchRoadDistance] = useState(null); // Valid road distance from API
 
   const [availableRides, setAvailableRides] = useState([]);
+  const rideSync = useRef({ version: undefined, rides: [] }); // Full available-rides feed held between polls
   const [myRide, setMyRide] = useState(null);
   
   const [searching, setSearching] = useState(false);
@@ -41,6 +43,14 @@ export default function RiderDashboardNew() {
 
   // ... (rest of state)
 
+  // Available rides, asking only for changes since the last call and merging them into the feed we hold
+  const fetchAvailableRides = async () => {
+    const res = await rideAPI.getAvailableRides(user.id, rideSync.current.version);
+    const rides = applyDelta(rideSync.current.rides, res.data, "rides");
+    rideSync.current = { version: res.data?.version, rides };
+    return rides;
+  };
+
   // Helper to fetch Real Road Distance
   const fetchRoadDistance = async (fromLat, fromLng, toLat, toLng) => {
     try {
@@ -116,8 +126,7 @@ export default function RiderDashboardNew() {
     const fetchAvailableLocations = async () => {
       try {
         // Use new endpoint that filters out already-requested rides
-        const res = await rideAPI.getAvailableRides(user.id);
-        const rides = res.data.rides || [];
+        const rides = await fetchAvailableRides();
 
         // Extract unique pickup and drop locations
         const pickups = new Set();
@@ -309,8 +318,7 @@ export default function RiderDashboardNew() {
       console.log("⏰ Cache Buster Timestamp:", Date.now());
 
       // CRITICAL: Add cache-busting parameter to force fresh data from backend
-      const res = await rideAPI.getAvailableRides(user.id);
-      const rides = res.data.rides || [];
+      const rides = await fetchAvailableRides();
 
       console.log("📋 Total rides from backend:", rides.length);
       console.log("📊 BACKEND RIDES DETAILS:");
@@ -422,9 +430,8 @@ export default function RiderDashboardNew() {
         
         console.log("🔄 Auto-refreshing search results...");
         
-        // Fetch fresh data from backend
-        const res = await rideAPI.getAvailableRides(user.id);
-        const rides = res.data.rides || [];
+        // Fetch what changed since the last refresh from backend
+        const rides = await fetchAvailableRides();
         
         // Re-apply filters
         const updatedRides = rides.filter((ride) => {
@@ -525,8 +532,7 @@ export default function RiderDashboardNew() {
         setDropLocation(null);
         
         // Refresh available rides immediately to show updated seat count
-        const refreshRes = await rideAPI.getAvailableRides(user.id);
-        const freshRides = refreshRes.data.rides || [];
+        const freshRides = await fetchAvailableRides();
         setAvailableRides(freshRides); // Force update UI
 
         setTimeout(() => {
@@ -0,0 +1,18 @@
+// Delta sync for polled lists (GET ...?since=<version>).
+// A full response ({ full: true, version, <listKey>: [...] }) replaces the list; a delta
+// ({ full: false, version, changed, removed, cutoff }) is merged into the list already held.
+export const applyDelta = (items, data, listKey) => {
+  if (!data || data.full !== false) {
+    return data?.[listKey] || [];
+  }
+
+  const byId = new Map(items.map((item) => [item.id, item]));
+  (data.removed || []).forEach((id) => byId.delete(id));
+  (data.changed || []).forEach((item) => byId.set(item.id, item));
+
+  // Entries created before the cutoff have aged out on the server
+  const cutoff = data.cutoff ? new Date(data.cutoff) : null;
+  return Array.from(byId.values()).filter(
+    (item) => !cutoff || !item.createdAt || new Date(item.createdAt) > cutoff
+  );
+};
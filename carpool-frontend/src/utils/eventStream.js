@@ -0,0 +1,71 @@
+import { API_BASE_URL } from "./constants";
+
+// Follow a Server-Sent Events endpoint of the API, e.g. "/rides/{rideId}/requests/stream".
+// fetch is used instead of EventSource so the Authorization header can be sent. After a drop the
+// stream reconnects with Last-Event-ID, so the server only replays what was missed.
+// onEvent(name, data, id) gets each event; onStatus(open) reports whether the stream is
+// connected. Returns a function that closes it.
+export const openEventStream = (path, onEvent, onStatus) => {
+  const controller = new AbortController();
+  let lastEventId = null;
+  let retryMs = 3000;
+  let closed = false;
+
+  const dispatch = (frame) => {
+    let id = null;
+    let name = "message";
+    let data = "";
+    frame.split("\n").forEach((line) => {
+      if (!line || line.startsWith(":")) return; // heartbeat comment
+      const colon = line.indexOf(":");
+      const field = colon >= 0 ? line.slice(0, colon) : line;
+      const value = colon >= 0 ? line.slice(colon + 1).replace(/^ /, "") : "";
+      if (field === "id") id = value;
+      else if (field === "event") name = value;
+      else if (field === "data") data += (data ? "\n" : "") + value;
+      else if (field === "retry") retryMs = Number(value) || retryMs;
+    });
+    if (id) lastEventId = id;
+    if (data) onEvent(name, JSON.parse(data), id);
+  };
+
+  const connect = async () => {
+    try {
+      const headers = { Accept: "text/event-stream" };
+      const token = localStorage.getItem("token");
+      if (token) headers.Authorization = `Bearer ${token}`;
+      if (lastEventId) headers["Last-Event-ID"] = lastEventId;
+
+      const res = await fetch(`${API_BASE_URL}${path}`, {
+        headers,
+        signal: controller.signal,
+      });
+      if (!res.ok || !res.body) throw new Error(`status ${res.status}`);
+      onStatus(true);
+
+      const reader = res.body.getReader();
+      const decoder = new TextDecoder();
+      let buffer = "";
+      for (;;) {
+        const { value, done } = await reader.read();
+        if (done) break;
+        buffer += decoder.decode(value, { stream: true }).replace(/\r\n?/g, "\n");
+        let end;
+        while ((end = buffer.indexOf("\n\n")) >= 0) {
+          dispatch(buffer.slice(0, end));
+          buffer = buffer.slice(end + 2);
+        }
+      }
+    } catch (err) {
+      if (!closed) console.warn("Event stream interrupted:", path, err.message);
+    }
+    onStatus(false);
+    if (!closed) setTimeout(connect, retryMs);
+  };
+
+  connect();
+  return () => {
+    closed = true;
+    controller.abort();
+  };
+};